@@ -0,0 +1,72 @@
+package backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    public static final String FAN_OUT_EXECUTOR = "fanOutExecutor";
+
+    public static final String PASSWORD_HASHING_EXECUTOR = "passwordHashingExecutor";
+
+    public static final String AVATAR_IMPORT_EXECUTOR = "avatarImportExecutor";
+
+
+    // bounded so a burst of posts queues up instead of taking every database connection. Shut down before the
+    // entity manager factory and its DataSource, so the queued fan-outs can still write while it drains
+    @Bean(name = FAN_OUT_EXECUTOR)
+    @DependsOn("entityManagerFactory")
+    public ThreadPoolTaskExecutor fanOutExecutor(@Value("${meet.feed.fan-out-threads:2}") int threads,
+                                                 @Value("${meet.feed.fan-out-queue:1000}") int queueCapacity,
+                                                 @Value("${meet.feed.fan-out-shutdown-seconds:30}") int shutdownSeconds) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("fan-out-");
+        // when the queue is full the publishing thread does the work, so no post is dropped
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownSeconds);
+        executor.initialize();
+        return executor;
+    }
+
+
+    // BCrypt is CPU bound, more threads than cores only adds queueing. Full queue means reject, see BoundedPasswordEncoder
+    @Bean(name = PASSWORD_HASHING_EXECUTOR)
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${meet.auth.hashing-threads:2}") int threads,
+                                                          @Value("${meet.auth.hashing-queue:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+
+    // an import that does not fit is dropped, the user simply keeps the generated placeholder avatar
+    @Bean(name = AVATAR_IMPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor avatarImportExecutor(@Value("${meet.images.import-threads:2}") int threads,
+                                                       @Value("${meet.images.import-queue:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("avatar-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
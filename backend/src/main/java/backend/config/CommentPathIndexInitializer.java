@@ -0,0 +1,45 @@
+package backend.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+
+/**
+ * Rebuilds idx_comments_blog_path with the "C" collation, under which the subtree ranges of
+ * CommentTreeRepository are index range scans; under the database's default collation the separator may
+ * not even sort between the digits. Hibernate can not declare a collation, so it creates the index plainly
+ * and this replaces it once; later runs find the index by name and leave it alone.
+ */
+@Component
+@Log4j2
+public class CommentPathIndexInitializer {
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createIndex() {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+        Integer collated = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_indexes WHERE schemaname = " +
+                "current_schema() AND indexname = 'idx_comments_blog_path' AND indexdef LIKE '%COLLATE \"C\"%'",
+                Integer.class);
+        if (collated != null && collated > 0) {
+            return;
+        }
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_comments_blog_path");
+        jdbcTemplate.execute("CREATE INDEX idx_comments_blog_path ON comments (blog_id, path COLLATE \"C\")");
+        log.info("Rebuilt idx_comments_blog_path with the C collation");
+    }
+}
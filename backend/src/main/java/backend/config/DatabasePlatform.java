@@ -0,0 +1,31 @@
+package backend.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The database product, detected once at startup. Native SQL that only PostgreSQL understands checks this
+ * and falls back to a portable variant elsewhere, e.g. H2 in tests.
+ */
+@Component
+@Log4j2
+public class DatabasePlatform {
+
+    private final boolean postgres;
+
+    public DatabasePlatform(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            this.postgres = "PostgreSQL".equalsIgnoreCase(product);
+            log.info("Database platform: {}", product);
+        }
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+}
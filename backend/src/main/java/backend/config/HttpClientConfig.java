@@ -0,0 +1,70 @@
+package backend.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Outbound HTTP: one pooled client with bounded connect, read and pool wait times, and the circuit
+ * breakers that callers wrap remote calls in.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    // closes the pooled client on shutdown
+    @Bean
+    public HttpComponentsClientHttpRequestFactory outboundRequestFactory(
+            @Value("${meet.http.max-connections:50}") int maxConnections,
+            @Value("${meet.http.max-connections-per-route:20}") int maxConnectionsPerRoute,
+            @Value("${meet.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${meet.http.read-timeout-ms:5000}") int readTimeoutMs) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                // waiting for a pooled connection is bounded by the connect timeout too
+                .setConnectionRequestTimeout(connectTimeoutMs)
+                .build();
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(client);
+    }
+
+
+    @Bean
+    public RestTemplate outboundRestTemplate(HttpComponentsClientHttpRequestFactory outboundRequestFactory) {
+        return new RestTemplate(outboundRequestFactory);
+    }
+
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${meet.http.breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${meet.http.breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${meet.http.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${meet.http.breaker.open-duration-ms:30000}") long openDurationMs) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMs))
+                // a bad payload says nothing about the remote being healthy
+                .ignoreExceptions(IllegalArgumentException.class)
+                .build());
+    }
+}
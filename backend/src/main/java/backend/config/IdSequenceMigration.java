@@ -0,0 +1,67 @@
+package backend.config;
+
+import backend.util.Constants;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares the sequences behind the entity ids for the pooled optimizer, which reserves
+ * {@link Constants#ID_ALLOCATION_SIZE} ids per call. Databases created with identity columns already have a
+ * {@code <table>_id_seq} per table that increments by one; it is switched to the allocation size and moved
+ * past the highest existing id, never backwards. Runs before Hibernate starts, so no id is handed out from
+ * the old increment. New databases get their sequences from Hibernate and are left alone.
+ */
+@Component
+@Log4j2
+public class IdSequenceMigration {
+
+    private static final List<String> TABLES = List.of("blogs", "categories", "comments", "mail_outbox",
+            "one_time_token", "roles", "tags", "user_images", "users", "verification", "votes");
+
+    public IdSequenceMigration(DataSource dataSource, DatabasePlatform databasePlatform) {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            for (String table : TABLES) {
+                migrate(jdbcTemplate, table);
+            }
+        });
+    }
+
+
+    private void migrate(JdbcTemplate jdbcTemplate, String table) {
+        String sequence = table + "_id_seq";
+        List<Map<String, Object>> found = jdbcTemplate.queryForList("SELECT increment_by, last_value FROM pg_sequences " +
+                "WHERE schemaname = current_schema() AND sequencename = ?", sequence);
+        if (found.isEmpty() || ((Number) found.get(0).get("increment_by")).intValue() == Constants.ID_ALLOCATION_SIZE) {
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + Constants.ID_ALLOCATION_SIZE);
+        // the next call returns at least this + allocation size, the whole range above is unused
+        Long position = jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', GREATEST(" +
+                "(SELECT COALESCE(MAX(id), 0) FROM " + table + "), " +
+                "(SELECT COALESCE(last_value, 0) FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?), 1))",
+                Long.class, sequence);
+        log.info("Sequence {} now increments by {} from {}", sequence, Constants.ID_ALLOCATION_SIZE, position);
+    }
+
+
+    @Component
+    static class EntityManagerFactoryDependsOnIdSequenceMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnIdSequenceMigration() {
+            super(IdSequenceMigration.class);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package backend.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+
+/**
+ * Creates the pg_trgm GIN indexes behind fuzzy author and title search. Hibernate can not express
+ * expression or GIN indexes, so they are created here once the schema is up to date; every statement is
+ * idempotent.
+ */
+@Component
+@Log4j2
+public class TrigramIndexInitializer {
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createIndexes() {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+        // needs CREATE privilege on the database, without it fuzzy search fails until an admin installs it
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_blogs_title_trgm ON blogs USING gin (lower(title) gin_trgm_ops)");
+        log.info("Trigram indexes are in place");
+    }
+}
@@ -0,0 +1,65 @@
+package backend.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Makes votes unique per user and post and per user and comment on databases created before the Vote
+ * entity declared uk_votes_user_blog and uk_votes_user_comment. Duplicates left behind by the old
+ * read-then-insert toggle are removed first, keeping the newest row, because the index can not be built
+ * over them. Runs before Hibernate starts, so the upsert in VoteUpsertRepository never meets a table without
+ * the index, and Hibernate finds the indexes by name and leaves them alone. Once an index exists its
+ * duplicate scan is skipped; new databases get both as constraints from Hibernate.
+ */
+@Component
+@Log4j2
+public class VoteIndexInitializer {
+
+    public VoteIndexInitializer(DataSource dataSource, DatabasePlatform databasePlatform) {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            if (jdbcTemplate.queryForObject("SELECT to_regclass('votes') IS NULL", Boolean.class)) {
+                return;
+            }
+            int removed = createIndex(jdbcTemplate, "uk_votes_user_blog", "blog_id")
+                    + createIndex(jdbcTemplate, "uk_votes_user_comment", "comment_id");
+            if (removed > 0) {
+                // the vote counters still include them, the first CounterReconciliationJob run repairs that
+                log.warn("Removed {} duplicate votes", removed);
+            }
+        });
+    }
+
+
+    // null ids never conflict, so post votes and comment votes each only collide among themselves
+    private int createIndex(JdbcTemplate jdbcTemplate, String index, String target) {
+        Integer exists = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_indexes " +
+                "WHERE schemaname = current_schema() AND indexname = ?", Integer.class, index);
+        if (exists != null && exists > 0) {
+            return 0;
+        }
+        int removed = jdbcTemplate.update("DELETE FROM votes v WHERE v." + target + " IS NOT NULL AND EXISTS " +
+                "(SELECT 1 FROM votes d WHERE d.user_id = v.user_id AND d." + target + " = v." + target + " AND d.id > v.id)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX " + index + " ON votes (user_id, " + target + ")");
+        log.info("Created unique index {}", index);
+        return removed;
+    }
+
+
+    @Component
+    static class EntityManagerFactoryDependsOnVoteIndexInitializer extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnVoteIndexInitializer() {
+            super(VoteIndexInitializer.class);
+        }
+    }
+}
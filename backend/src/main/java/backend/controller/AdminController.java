@@ -0,0 +1,33 @@
+package backend.controller;
+
+import backend.search.BlogSearchIndex;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Maintenance operations, restricted to users with the ADMIN role.
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+@CrossOrigin("*")
+@Log4j2
+public class AdminController {
+
+    @Autowired
+    private BlogSearchIndex blogSearchIndex;
+
+
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<String> rebuildSearchIndex() {
+        try {
+            int indexed = blogSearchIndex.rebuild();
+            return new ResponseEntity<>("Search index rebuilt with " + indexed + " posts", HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while rebuilding the search index", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
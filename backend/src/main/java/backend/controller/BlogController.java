@@ -3,29 +3,59 @@ package backend.controller;
 import backend.dto.*;
 import backend.entity.User;
 import backend.repository.*;
+import backend.search.SuggestIndex;
 import backend.service.BlogService;
+import backend.service.CatalogService;
+import backend.service.CommentService;
+import backend.service.FeedService;
+import backend.service.VoteCounterBuffer;
+import backend.util.Utils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1")
-@CrossOrigin("*")
+@CrossOrigin(origins = "*", exposedHeaders = VoteCounterBuffer.STALENESS_HEADER)
 @Log4j2
 public class BlogController {
 
     @Autowired
     private BlogService blogService;
 
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
     @Autowired
     private CategoryRepository categoryRepository;
 
@@ -38,6 +68,9 @@ public class BlogController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     @PostMapping("/categories")
     public ResponseEntity<String> addCategory(@RequestBody CategoryDTO categoryDTO) {
@@ -54,7 +87,7 @@ public class BlogController {
         }
 
         try {
-            if (blogService.createCategory(categoryDTO)) {
+            if (catalogService.createCategory(categoryDTO)) {
                 return new ResponseEntity<>("Category created", HttpStatus.CREATED);
             }
             return new ResponseEntity<>("Category already exists", HttpStatus.CONFLICT);
@@ -66,13 +99,13 @@ public class BlogController {
 
 
     @GetMapping("/categories")
-    public ResponseEntity<List<CategoryResponseDTO>> getAllCategories() {
+    public ResponseEntity<List<CategoryResponseDTO>> getAllCategories(WebRequest webRequest) {
         try {
-            List<CategoryResponseDTO> categories = blogService.getCategories();
+            List<CategoryResponseDTO> categories = catalogService.getCategories();
             if (categories.isEmpty()) {
                 return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
-            return new ResponseEntity<>(categories, HttpStatus.OK);
+            return catalogResponse(categories, webRequest);
         } catch (Exception e) {
             log.error(e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -128,7 +161,7 @@ public class BlogController {
         }
 
         try {
-            if (blogService.createTag(tagDTO)) {
+            if (catalogService.createTag(tagDTO)) {
                 return new ResponseEntity<>("Tag added", HttpStatus.CREATED);
             }
             return new ResponseEntity<>("Tag already exists", HttpStatus.CONFLICT);
@@ -140,19 +173,31 @@ public class BlogController {
 
 
     @GetMapping("/tags")
-    public ResponseEntity<List<TagResponseDTO>> getAllTags() {
+    public ResponseEntity<List<TagResponseDTO>> getAllTags(WebRequest webRequest) {
         try {
-            List<TagResponseDTO> tags = blogService.getTags();
+            List<TagResponseDTO> tags = catalogService.getTags();
             if (tags.isEmpty()) {
                 return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
-            return new ResponseEntity<>(tags, HttpStatus.OK);
+            return catalogResponse(tags, webRequest);
         } catch (Exception e) {
             log.error(e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+
+    // catalogs change rarely, browsers revalidate with the ETag and usually get an empty 304. The ETag is a
+    // digest of the body as it is sent, so any change to an entry changes it
+    private <T> ResponseEntity<List<T>> catalogResponse(List<T> catalog, WebRequest webRequest)
+            throws JsonProcessingException {
+        String eTag = "\"" + Utils.hashContent(objectMapper.writeValueAsBytes(catalog)) + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(catalog);
+    }
+
     @PostMapping("/tags/{tagId}")
     public ResponseEntity<?> followATag(@PathVariable Integer tagId, @RequestParam Integer userId) {
         if (tagId == null || userId == null) {
@@ -206,6 +251,8 @@ public class BlogController {
                 return new ResponseEntity<>("Blog created", HttpStatus.CREATED);
             }
             return ResponseEntity.internalServerError().build();
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.error(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -213,42 +260,141 @@ public class BlogController {
     }
 
 
+    /**
+     * Lists posts. Offset pagination by default; passing {@code after} (empty for the first slice) switches
+     * to keyset mode, which returns a slice with a {@code nextCursor} and skips the count query. Keyset mode
+     * supports sorting by createdTime and upVotes.
+     */
     @GetMapping("/posts")
     public ResponseEntity<?> getAllBlogs(@RequestParam(defaultValue = "0") int page,
                                          @RequestParam(defaultValue = "5") int size,
                                          @RequestParam(required = false) String category,
                                          @RequestParam(required = false) String tag,
                                          @RequestParam(defaultValue = "createdTime") String sortBy,
-                                         @RequestParam(defaultValue = "desc") String sortDir) {
+                                         @RequestParam(defaultValue = "desc") String sortDir,
+                                         @RequestParam(required = false) String after) {
+        Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        if ("hot".equalsIgnoreCase(sortBy)) {
+            // precomputed by vote updates and HotScoreRefreshJob
+            sortBy = "hotScore";
+        }
+        if (after != null) {
+            String keysetSort = "upVotes".equalsIgnoreCase(sortBy) ? "upVotes" : sortBy;
+            if (!"upVotes".equals(keysetSort) && !"createdTime".equals(keysetSort) && !"hotScore".equals(keysetSort)) {
+                return new ResponseEntity<>("Cursor pagination supports sortBy createdTime, upVotes or hot", HttpStatus.BAD_REQUEST);
+            }
+            try {
+                SliceResponseDTO<BlogListResponseDTO> blogs = blogService.getBlogSlice(after, size, category, tag,
+                        keysetSort, direction);
+                if (blogs.getContent().isEmpty()) {
+                    return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+                }
+                return new ResponseEntity<>(blogs, counterHeaders(), HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+
         Pageable pageable;
         if ("upVotes".equalsIgnoreCase(sortBy)) {
-            Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-            pageable = PageRequest.of(page, size, Sort.unsorted());
+            // served by the (up_votes, id) index
+            pageable = PageRequest.of(page, size, Sort.by(direction, "upVotes", "id"));
+        } else if ("hotScore".equals(sortBy)) {
+            pageable = PageRequest.of(page, size, Sort.by(direction, "hotScore", "id"));
         } else {
-            Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
             pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
         }
 
-        Page<BlogListResponseDTO> blogs = blogService.getAllBlogs(pageable, category, tag,
-                "upVotes".equalsIgnoreCase(sortBy));
+        Page<BlogListResponseDTO> blogs = blogService.getAllBlogs(pageable, category, tag);
         if (!blogs.hasContent()) {
             return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
         }
-        return new ResponseEntity<>(blogs, HttpStatus.OK);
+        return new ResponseEntity<>(blogs, counterHeaders(), HttpStatus.OK);
+    }
+
+
+    // posts by followed users, tags and categories, newest first
+    @GetMapping("/feed")
+    public ResponseEntity<?> getFeed(@RequestParam(defaultValue = "10") int size,
+                                     @RequestParam(required = false) String after,
+                                     Authentication authentication) {
+        if (size < 1 || size > 50) {
+            return new ResponseEntity<>("Size must be between 1 and 50", HttpStatus.BAD_REQUEST);
+        }
+        Optional<Long> userId = userRepository.findIdByUsername(authentication.getName());
+        if (userId.isEmpty()) {
+            return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
+        }
+
+        try {
+            SliceResponseDTO<BlogListResponseDTO> feed = feedService.getFeed(userId.get(), after, size);
+            if (feed.getContent().isEmpty()) {
+                return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+            }
+            return new ResponseEntity<>(feed, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
     }
 
 
     @GetMapping("/posts/search")
     public ResponseEntity<?> searchBlogs(@RequestParam(defaultValue = "0") int page,
                                          @RequestParam(defaultValue = "5") int size,
-                                         @RequestParam String searchTerm) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<BlogListResponseDTO> blogs = blogService.searchBlogs(pageable, searchTerm);
+                                         @RequestParam String searchTerm,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "false") boolean fuzzy,
+                                         @RequestParam(defaultValue = "0.3") double threshold) {
+        try {
+            if (fuzzy) {
+                if (after != null) {
+                    return new ResponseEntity<>("Fuzzy search only supports page based pagination", HttpStatus.BAD_REQUEST);
+                }
+                if (threshold <= 0 || threshold > 1) {
+                    return new ResponseEntity<>("Threshold must be between 0 and 1", HttpStatus.BAD_REQUEST);
+                }
+                Page<BlogListResponseDTO> blogs = blogService.fuzzySearchBlogs(PageRequest.of(page, size), searchTerm, threshold);
+                if (!blogs.hasContent()) {
+                    return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+                }
+                return new ResponseEntity<>(blogs, HttpStatus.OK);
+            }
 
-        if (!blogs.hasContent()) {
-            return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+            if (after != null) {
+                SliceResponseDTO<BlogListResponseDTO> blogs = blogService.searchBlogSlice(after, size, searchTerm);
+                if (blogs.getContent().isEmpty()) {
+                    return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+                }
+                return new ResponseEntity<>(blogs, HttpStatus.OK);
+            }
+
+            Pageable pageable = PageRequest.of(page, size);
+            Page<BlogListResponseDTO> blogs = blogService.searchBlogs(pageable, searchTerm);
+
+            if (!blogs.hasContent()) {
+                return new ResponseEntity<>("No blogs found", HttpStatus.NO_CONTENT);
+            }
+            return new ResponseEntity<>(blogs, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            log.error(e);
+            return new ResponseEntity<>("Search is unavailable", HttpStatus.SERVICE_UNAVAILABLE);
         }
-        return new ResponseEntity<>(blogs, HttpStatus.OK);
+    }
+
+
+    /**
+     * Autocompletion for the search box, answered from memory. Matches tag and category titles, usernames
+     * and popular post titles having a word that starts with {@code prefix}.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix,
+                                                       @RequestParam(defaultValue = "8") int limit) {
+        return new ResponseEntity<>(suggestIndex.suggest(prefix, Math.max(1, Math.min(limit, 20))), HttpStatus.OK);
     }
 
 
@@ -263,7 +409,7 @@ public class BlogController {
             if (blog == null) {
                 return new ResponseEntity<>("Blog not found", HttpStatus.NOT_FOUND);
             }
-            return new ResponseEntity<>(blog, HttpStatus.OK);
+            return new ResponseEntity<>(blog, counterHeaders(), HttpStatus.OK);
         } catch (Exception e) {
             log.error(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -271,6 +417,63 @@ public class BlogController {
     }
 
 
+    /**
+     * Top level comments of a post, oldest first. Each carries up to {@code replies} replies per comment,
+     * {@code depth} levels down; replyCount tells when there are more to load from /comments/{id}/replies.
+     */
+    @GetMapping("/posts/{id}/comments")
+    public ResponseEntity<?> getComments(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(defaultValue = "2") int depth,
+                                         @RequestParam(defaultValue = "3") int replies) {
+        if (!blogRepository.existsById(id)) {
+            return new ResponseEntity<>("Blog not found", HttpStatus.NOT_FOUND);
+        }
+        try {
+            Pageable pageable = PageRequest.of(Math.max(page, 0), clamp(size, 1, 50));
+            return new ResponseEntity<>(commentService.getComments(id, pageable, clamp(depth, 0, 5), clamp(replies, 1, 20)),
+                    HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    // direct replies of a comment after the "after" reply id, each with its own replies as above
+    @GetMapping("/comments/{id}/replies")
+    public ResponseEntity<?> getReplies(@PathVariable Long id, @RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "10") int size,
+                                        @RequestParam(defaultValue = "1") int depth,
+                                        @RequestParam(defaultValue = "3") int replies) {
+        if (!commentService.exists(id)) {
+            return new ResponseEntity<>("Comment not found", HttpStatus.NOT_FOUND);
+        }
+        try {
+            return new ResponseEntity<>(commentService.getReplies(id, after, clamp(size, 1, 50), clamp(depth, 0, 5),
+                    clamp(replies, 1, 20)), HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    private int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+
+    // how far behind the vote counters in the response may be when they are written behind
+    private HttpHeaders counterHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        if (voteCounterBuffer.isEnabled()) {
+            headers.set(VoteCounterBuffer.STALENESS_HEADER, String.valueOf(voteCounterBuffer.stalenessMs()));
+        }
+        return headers;
+    }
+
+
     @PostMapping("/vote")
     public ResponseEntity<?> upVoteBlog(@RequestParam Integer blogId, @RequestParam Integer userId) {
         if (blogId <= 0) {
@@ -280,18 +483,16 @@ public class BlogController {
             return new ResponseEntity<>("Please provide a valid userId", HttpStatus.BAD_REQUEST);
         }
 
-        if (!blogRepository.existsById(blogId.longValue())) {
-            return new ResponseEntity<>("Blog not found", HttpStatus.NOT_FOUND);
-        }
-        if (!userRepository.existsById(userId.longValue())) {
-            return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
-        }
-
         try {
             if (blogService.upVoteOrDeleteVoteBlog(blogId, userId)) {
-                return new ResponseEntity<>("Blog updated", HttpStatus.OK);
+                return new ResponseEntity<>("Blog updated", counterHeaders(), HttpStatus.OK);
             }
             return new ResponseEntity<>("Blog not updated", HttpStatus.NOT_FOUND);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>("Vote changed by a concurrent request, please retry", HttpStatus.CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            // the foreign keys reject unknown posts and users, no lookups needed up front
+            return new ResponseEntity<>("Blog or user not found", HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             log.error(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
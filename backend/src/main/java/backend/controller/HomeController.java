@@ -1,27 +1,45 @@
 package backend.controller;
 
 import backend.dto.*;
+import backend.entity.UserImage;
 import backend.entity.Verification;
+import backend.projection.ImageView;
 import backend.repository.UserRepository;
 import backend.repository.VerificationRepository;
 import backend.security.JWTGenerator;
+import backend.service.BlogService;
 import backend.service.HomeService;
+import backend.service.ImageService;
 import backend.util.Utils;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.transaction.Transactional;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -41,6 +59,12 @@ public class HomeController {
     @Autowired
     private VerificationRepository verificationRepository;
 
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private BlogService blogService;
+
 
     /**
      * Checks the health status of the application.
@@ -97,6 +121,8 @@ public class HomeController {
                 return new ResponseEntity<>("User registered successfully", HttpStatus.CREATED);
             }
             return new ResponseEntity<>("Invalid credentials", HttpStatus.UNAUTHORIZED);
+        } catch (TaskRejectedException e) {
+            return hashingBusy();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -127,6 +153,8 @@ public class HomeController {
                 return new ResponseEntity<>("User registered successfully", HttpStatus.CREATED);
             }
             return new ResponseEntity<>("Invalid credentials", HttpStatus.UNAUTHORIZED);
+        } catch (TaskRejectedException e) {
+            return hashingBusy();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -170,6 +198,8 @@ public class HomeController {
                 return new ResponseEntity<>(response, HttpStatus.OK);
             }
             return new ResponseEntity<>("Invalid credentials", HttpStatus.UNAUTHORIZED);
+        } catch (TaskRejectedException e) {
+            return hashingBusy();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -177,6 +207,11 @@ public class HomeController {
     }
 
 
+    /**
+     * @deprecated loads the user's whole history in one response, use {@code /profile/header} and the
+     *             paginated {@code /users/{id}/...} endpoints instead
+     */
+    @Deprecated
     @GetMapping("/profile")
     public ResponseEntity<?> getProfile(@RequestParam String username) {
         if (userRepository.existsByUsername(username)) {
@@ -187,6 +222,90 @@ public class HomeController {
     }
 
 
+    @GetMapping("/profile/header")
+    public ResponseEntity<?> getProfileHeader(@RequestParam String username) {
+        try {
+            ProfileHeaderDTO response = homeService.getProfileHeader(username);
+            if (response == null) {
+                return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    @GetMapping("/users/{id}/posts")
+    public ResponseEntity<?> getUserPosts(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "10") int size) {
+        Pageable pageable = profilePage(page, size, Sort.by(Sort.Direction.DESC, "createdTime", "id"));
+        return profileList(id, () -> blogService.getUserBlogs(id, pageable));
+    }
+
+
+    // blogId narrows the list down to the vote on one post, if any
+    @GetMapping("/users/{id}/votes")
+    public ResponseEntity<?> getUserVotes(@PathVariable Long id, @RequestParam(required = false) Long blogId,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) {
+        return profileList(id, () -> homeService.getUserVotes(id, blogId, profilePage(page, size, Sort.unsorted())));
+    }
+
+
+    @GetMapping("/users/{id}/followers")
+    public ResponseEntity<?> getFollowers(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) {
+        return profileList(id, () -> homeService.getFollowers(id, profilePage(page, size, Sort.unsorted())));
+    }
+
+
+    @GetMapping("/users/{id}/following")
+    public ResponseEntity<?> getFollowing(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) {
+        return profileList(id, () -> homeService.getFollowing(id, profilePage(page, size, Sort.unsorted())));
+    }
+
+
+    @GetMapping("/users/{id}/following/{targetId}")
+    public ResponseEntity<?> isFollowing(@PathVariable Long id, @PathVariable Long targetId) {
+        return new ResponseEntity<>(userRepository.isFollowing(id, targetId), HttpStatus.OK);
+    }
+
+
+    @GetMapping("/users/{id}/tags")
+    public ResponseEntity<?> getFollowedTags(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "50") int size) {
+        return profileList(id, () -> homeService.getFollowedTags(id, profilePage(page, size, Sort.unsorted())));
+    }
+
+
+    @GetMapping("/users/{id}/categories")
+    public ResponseEntity<?> getFollowedCategories(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "50") int size) {
+        return profileList(id, () -> homeService.getFollowedCategories(id, profilePage(page, size, Sort.unsorted())));
+    }
+
+
+    private Pageable profilePage(int page, int size, Sort sort) {
+        return PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)), sort);
+    }
+
+
+    private ResponseEntity<?> profileList(Long userId, Supplier<Page<?>> list) {
+        if (!userRepository.existsById(userId.longValue())) {
+            return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
+        }
+        try {
+            return new ResponseEntity<>(list.get(), HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
     @PutMapping("/profile")
     public ResponseEntity<?> updateUserInfo(@RequestBody UserInfoDTO userInfoDTO, HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
@@ -214,7 +333,6 @@ public class HomeController {
 
 
     @PutMapping("/profile/avatar")
-    @Transactional
     public ResponseEntity<String> updateAvatar(@RequestParam Integer userId, @RequestPart MultipartFile avatar,
                                                HttpServletRequest request) {
         if (avatar == null) {
@@ -231,6 +349,10 @@ public class HomeController {
                             return new ResponseEntity<>("Avatar updated successfully", HttpStatus.OK);
                         }
                         return new ResponseEntity<>("Avatar update failed", HttpStatus.UNAUTHORIZED);
+                    } catch (IllegalArgumentException e) {
+                        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+                    } catch (RejectedExecutionException e) {
+                        return new ResponseEntity<>("Too many uploads in progress, please retry shortly", HttpStatus.TOO_MANY_REQUESTS);
                     } catch (Exception e) {
                         log.error(e.getMessage(), e);
                         return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -245,7 +367,6 @@ public class HomeController {
 
 
     @PutMapping("/profile/banner")
-    @Transactional
     public ResponseEntity<String> updateBanner(@RequestParam Integer userId, @RequestPart MultipartFile banner,
                                                HttpServletRequest request) {
         if (banner == null) {
@@ -262,6 +383,10 @@ public class HomeController {
                             return new ResponseEntity<>("Banner updated successfully", HttpStatus.OK);
                         }
                         return new ResponseEntity<>("Banner update failed", HttpStatus.UNAUTHORIZED);
+                    } catch (IllegalArgumentException e) {
+                        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+                    } catch (RejectedExecutionException e) {
+                        return new ResponseEntity<>("Too many uploads in progress, please retry shortly", HttpStatus.TOO_MANY_REQUESTS);
                     } catch (Exception e) {
                         log.error(e.getMessage(), e);
                         return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -275,6 +400,98 @@ public class HomeController {
     }
 
 
+    /**
+     * Finds users by approximate name, tolerating typos and partial input.
+     *
+     * @param q         The name as typed.
+     * @param threshold Minimum trigram similarity between 0 and 1, lower values match more loosely.
+     * @param limit     Maximum number of users returned, at most 50.
+     * @return The matching users, best match first.
+     */
+    @GetMapping("/users/search")
+    public ResponseEntity<?> searchUsers(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0.3") double threshold,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            return new ResponseEntity<>("Please provide a name", HttpStatus.BAD_REQUEST);
+        }
+        if (threshold <= 0 || threshold > 1) {
+            return new ResponseEntity<>("Threshold must be between 0 and 1", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(homeService.findUsers(q, threshold, Math.max(1, Math.min(limit, 50))), HttpStatus.OK);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ResponseEntity<>("An error occurred while processing the request", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    /**
+     * Serves the raw bytes of a user's avatar.
+     * <p>
+     * {@code size} picks the smallest stored variant at least that wide, falling back to the original.
+     * Requests carrying the current content hash as {@code v} (the URLs handed out in every DTO) are
+     * marked immutable and cached for a year; other requests revalidate against the hash ETag and get a
+     * 304 without the image being read when it is unchanged.
+     *
+     * @param id   The user id.
+     * @param size The requested width in pixels, optional.
+     * @param v    The content hash the URL was built with, optional.
+     * @return The image bytes, HTTP 304 (NOT MODIFIED) when the ETag matches,
+     *         or HTTP 404 (NOT FOUND) if the user has no avatar.
+     */
+    @GetMapping("/users/{id}/avatar")
+    public ResponseEntity<byte[]> getAvatar(@PathVariable Long id, @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String v, WebRequest webRequest) {
+        return serveImage(id, UserImage.Kind.AVATAR, size, v, webRequest);
+    }
+
+
+    @GetMapping("/users/{id}/banner")
+    public ResponseEntity<byte[]> getBanner(@PathVariable Long id, @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String v, WebRequest webRequest) {
+        return serveImage(id, UserImage.Kind.BANNER, size, v, webRequest);
+    }
+
+
+    private ResponseEntity<byte[]> serveImage(Long userId, UserImage.Kind kind, Integer size, String version,
+                                              WebRequest webRequest) {
+        Optional<String> hash = imageService.findVersion(userId, kind);
+        if (hash.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        String eTag = "\"" + hash.get() + (size != null ? "-" + size : "") + "\"";
+        // CacheControl has no builder method for "immutable" in this Spring version
+        String cacheControl = hash.get().equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable"
+                : CacheControl.noCache().cachePublic().getHeaderValue();
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl).build();
+        }
+
+        Optional<ImageView> image = imageService.find(userId, kind, size);
+        if (image.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        // only ever echo image types back, anything else is served as an opaque download
+        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        String type = image.get().getType();
+        if (type != null && type.startsWith("image/")) {
+            try {
+                mediaType = MediaType.parseMediaType(type);
+            } catch (InvalidMediaTypeException e) {
+                log.warn("Stored image has an invalid content type: {}", type);
+            }
+        }
+        return ResponseEntity.ok().eTag(eTag).header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .contentType(mediaType).body(image.get().getData());
+    }
+
+
     @PostMapping("/follow/{id}")
     public ResponseEntity<?> followAUser(@PathVariable Integer id, @RequestParam Integer targetId,
                                          HttpServletRequest request) {
@@ -367,10 +584,21 @@ public class HomeController {
         if (password.isEmpty()) {
             return new ResponseEntity<>("Password can't be null", HttpStatus.BAD_REQUEST);
         }
-        if (homeService.resetPassword(email, password)) {
-            return new ResponseEntity<>("Password reset successfully", HttpStatus.OK);
+        try {
+            if (homeService.resetPassword(email, password)) {
+                return new ResponseEntity<>("Password reset successfully", HttpStatus.OK);
+            }
+            return new ResponseEntity<>("Password not found", HttpStatus.NOT_FOUND);
+        } catch (TaskRejectedException e) {
+            return hashingBusy();
         }
-        return new ResponseEntity<>("Password not found", HttpStatus.NOT_FOUND);
+    }
+
+
+    // every password hashing thread is busy and the queue is full, fail fast instead of holding the request
+    private ResponseEntity<String> hashingBusy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many requests, please try again");
     }
 
 
@@ -378,4 +606,11 @@ public class HomeController {
     public String successLogin() {
         return "success";
     }
+
+
+    // multipart is resolved lazily, so oversized uploads fail inside the handler and end up here
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<String> handleMaxUploadSize(MaxUploadSizeExceededException e) {
+        return new ResponseEntity<>("Uploaded file is too large", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 }
@@ -12,7 +12,12 @@ public class BlogListResponseDTO {
 
     private String title;
 
-    private String content;
+    private String excerpt;
+
+    // estimated minutes to read
+    private Integer readingTime;
+
+    private String coverImage;
 
     private String author;
 
@@ -26,7 +26,7 @@ public class BlogResponseDTO {
 
     private Integer downVotes;
 
-    private List<CommentResponseDTO> comments;
+    private Integer commentCount;
 
     private Date createdTime;
 }
@@ -22,6 +22,9 @@ public class CommentResponseDTO {
 
     private Integer downVotes;
 
+    // number of direct replies, more than in replies when some are left to load
+    private Integer replyCount;
+
     private List<CommentResponseDTO> replies;
 
     private Date createdTime;
@@ -0,0 +1,37 @@
+package backend.dto;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Top of a profile page. Lists are served by the paginated /users/{id}/... endpoints, this only carries
+ * their sizes.
+ */
+@Data
+public class ProfileHeaderDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String avatar;
+
+    private String banner;
+
+    private String bio;
+
+    private long postCount;
+
+    private long followerCount;
+
+    private long followingCount;
+
+    private Integer totalUpVotes;
+
+    private long totalReceivedUpVotes;
+
+    private Integer totalComments;
+
+    private Date createdTime;
+}
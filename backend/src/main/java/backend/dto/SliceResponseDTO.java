@@ -0,0 +1,22 @@
+package backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SliceResponseDTO<T> {
+
+    private List<T> content;
+
+    private Integer size;
+
+    private boolean hasNext;
+
+    // pass back as "after" to fetch the next slice, null on the last one
+    private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionDTO {
+
+    // POST, TAG, CATEGORY or USER
+    private String type;
+
+    private Long id;
+
+    private String text;
+}
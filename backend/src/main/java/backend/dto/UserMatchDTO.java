@@ -0,0 +1,15 @@
+package backend.dto;
+
+import lombok.Data;
+
+@Data
+public class UserMatchDTO {
+
+    private Long id;
+
+    private String username;
+
+    private String avatar;
+
+    private double similarity;
+}
@@ -1,5 +1,6 @@
 package backend.entity;
 
+import backend.util.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,11 +13,20 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "blogs")
+@Table(name = "blogs", indexes = {
+    @Index(name = "idx_blogs_up_votes", columnList = "upVotes, id"),
+    @Index(name = "idx_blogs_created_time", columnList = "createdTime, id"),
+    @Index(name = "idx_blogs_hot_score", columnList = "hotScore, id"),
+    // an author's posts, newest first, and their counts in user_stats
+    @Index(name = "idx_blogs_user_created_time", columnList = "user_id, createdTime, id"),
+    // posts of pulled authors in the following feed
+    @Index(name = "idx_blogs_pulled_user_created_time", columnList = "pulled, user_id, createdTime, id")
+})
 public class Blog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "blogs_id_seq")
+    @SequenceGenerator(name = "blogs_id_seq", sequenceName = "blogs_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     private String title;
@@ -24,6 +34,17 @@ public class Blog {
     @Lob
     private String content;
 
+    // plain text preview, reading time and first image derived from content when the post is saved,
+    // so list pages never need to read the content column
+    @Column(length = 512)
+    private String excerpt;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int readingTime;
+
+    @Column(length = 2048)
+    private String coverImage;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -50,6 +71,24 @@ public class Blog {
     )
     private List<Tag> tags;
 
+    // denormalized counters, maintained on write and repaired by CounterReconciliationJob
+    @Column(columnDefinition = "integer default 0 not null")
+    private int upVotes;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int downVotes;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int commentCount;
+
+    // time decayed rank, updated on votes and refreshed periodically by HotScoreRefreshJob
+    @Column(columnDefinition = "double precision default 0 not null")
+    private double hotScore;
+
+    // not fanned out to the author's followers when posted, the following feed reads it from here instead
+    @Column(columnDefinition = "boolean default false not null")
+    private boolean pulled;
+
     private Date createdTime;
 
     private Date updatedTime;
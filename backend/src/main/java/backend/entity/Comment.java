@@ -1,5 +1,6 @@
 package backend.entity;
 
+import backend.util.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,11 +13,25 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_blog_path", columnList = "blog_id, path"),
+    @Index(name = "idx_comments_parent", columnList = "parent_comment_id, id"),
+    // comment counts in user_stats
+    @Index(name = "idx_comments_user", columnList = "user_id")
+})
 public class Comment {
 
+    // ids in a path are zero padded so that string order matches numeric order
+    public static final int PATH_SEGMENT_WIDTH = 10;
+
+    public static final String PATH_SEPARATOR = "/";
+
+    // keeps paths well inside the column length
+    public static final int MAX_DEPTH = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_id_seq")
+    @SequenceGenerator(name = "comments_id_seq", sequenceName = "comments_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Lob
@@ -41,5 +56,30 @@ public class Comment {
     @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Vote> votes;
 
+    // denormalized counters, maintained on write and repaired by CounterReconciliationJob
+    @Column(columnDefinition = "integer default 0 not null")
+    private int upVotes;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int downVotes;
+
+    // number of direct replies
+    @Column(columnDefinition = "integer default 0 not null")
+    private int commentCount;
+
+    // ids from the top level comment down to this one, so sorting by path gives depth first thread order and
+    // a prefix selects a subtree. Null until CommentPathBackfillJob has reached comments written before it
+    @Column(length = 2048)
+    private String path;
+
+    // 0 for top level comments
+    @Column(columnDefinition = "integer default 0 not null")
+    private int depth;
+
     private Date createdTime;
+
+
+    public static String pathSegment(Long id) {
+        return String.format("%0" + PATH_SEGMENT_WIDTH + "d", id);
+    }
 }
@@ -0,0 +1,70 @@
+package backend.entity;
+
+import backend.util.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A mail waiting to be sent. Written in the transaction that asks for the mail and sent later by
+ * {@code MailOutboxDispatcher}, which leases due rows so that several instances never send the same one.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "idx_mail_outbox_due", columnList = "status, nextAttemptTime, id"),
+        @Index(name = "idx_mail_outbox_user_kind", columnList = "userId, kind, status"),
+        @Index(name = "idx_mail_outbox_lease", columnList = "leaseOwner")
+})
+public class MailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mail_outbox_id_seq")
+    @SequenceGenerator(name = "mail_outbox_id_seq", sequenceName = "mail_outbox_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    // with kind, the dedup key: a user has at most one pending mail of each kind
+    private Long userId;
+
+    @Column(length = 32)
+    private String kind;
+
+    private String recipient;
+
+    private String subject;
+
+    @Column(columnDefinition = "text")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int attempts;
+
+    private Date nextAttemptTime;
+
+    @Column(length = 36)
+    private String leaseOwner;
+
+    private Date leaseExpirationTime;
+
+    @Column(length = 512)
+    private String lastError;
+
+    private Date createdTime;
+
+    private Date sentTime;
+
+    public enum Status {
+        PENDING,
+        SENT,
+        FAILED
+    }
+}
@@ -1,5 +1,6 @@
 package backend.entity;
 
+import backend.util.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,6 +9,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 @Entity
 @Data
@@ -16,7 +18,8 @@ import javax.persistence.Id;
 public class OneTimeToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "one_time_token_id_seq")
+    @SequenceGenerator(name = "one_time_token_id_seq", sequenceName = "one_time_token_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     private String token;
@@ -0,0 +1,44 @@
+package backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One post in one user's following feed, written when the post is created. Holds ids only, so fan-out
+ * is a plain batched insert and the feed is hydrated from blogs when read.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(TimelineEntry.Key.class)
+@Table(name = "timeline_entries", indexes = {
+    @Index(name = "idx_timeline_entries_user_created", columnList = "userId, createdTime, blogId")
+})
+public class TimelineEntry {
+
+    @Id
+    private Long userId;
+
+    @Id
+    private Long blogId;
+
+    // copied from the post so the feed is ordered without a join
+    private Date createdTime;
+
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+
+        private Long userId;
+
+        private Long blogId;
+    }
+}
@@ -1,5 +1,6 @@
 package backend.entity;
 
+import backend.util.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,11 +14,15 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    // token checks and the login lookup go by username
+    @Index(name = "idx_users_username", columnList = "username")
+})
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     private String username;
@@ -31,21 +36,17 @@ public class User {
 
     private String avatarType;
 
-    @Lob
-    private byte[] avatarBlob;
-
-    @Transient
-    private String avatarData;
+    // content hash of the original avatar, used as ETag and as the version in avatar URLs. The bytes
+    // live in user_images so loading a user never reads them
+    @Column(length = 64)
+    private String avatarHash;
 
     private String bannerName;
 
     private String bannerType;
 
-    @Lob
-    private byte[] bannerBlob;
-
-    @Transient
-    private String bannerData;
+    @Column(length = 64)
+    private String bannerHash;
 
     private String bio;
 
@@ -89,7 +90,13 @@ public class User {
     @JoinTable(
         name = "user_following",
         joinColumns = @JoinColumn(name = "user_id"),
-        inverseJoinColumns = @JoinColumn(name = "following_user_id")
+        inverseJoinColumns = @JoinColumn(name = "following_user_id"),
+        indexes = {
+            // follower counts and fan-out look up by the followed user
+            @Index(name = "idx_user_following_following", columnList = "following_user_id"),
+            // following lists and counts look up by the follower
+            @Index(name = "idx_user_following_user", columnList = "user_id")
+        }
     )
     private List<User> following = new ArrayList<>();
 
@@ -97,4 +104,7 @@ public class User {
     private List<User> followers = new ArrayList<>();
 
     private Date createdTime;
+
+    // tokens issued before it are rejected, shared by every node through the database
+    private Date passwordChangedTime;
 }
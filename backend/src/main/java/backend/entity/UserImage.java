@@ -0,0 +1,58 @@
+package backend.entity;
+
+import backend.util.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Bytes of a user's avatar or banner: the sanitized original under width {@link #ORIGINAL_WIDTH} and the
+ * resized renditions generated from it on upload. The original is the re-encoded upload, subsampled while
+ * decoding when it is larger than ImageService accepts at full size, never the uploaded file itself.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_images", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_images_user_kind_width", columnNames = {"user_id", "kind", "width"})
+})
+public class UserImage {
+
+    // the sanitized re-encode, see ImageService for when it is scaled down
+    public static final int ORIGINAL_WIDTH = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_images_id_seq")
+    @SequenceGenerator(name = "user_images_id_seq", sequenceName = "user_images_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Kind kind;
+
+    // width in pixels, avatars are square
+    private int width;
+
+    private String contentType;
+
+    @Column(length = 64)
+    private String hash;
+
+    @Lob
+    private byte[] data;
+
+    private Date createdTime;
+
+    public enum Kind {
+        AVATAR,
+        BANNER
+    }
+}
@@ -0,0 +1,47 @@
+package backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Denormalized profile totals of one user. Updated in the same transaction as the posts, comments,
+ * votes and follows they count, and checked against the source rows by {@code UserStatsReconciliationJob}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_stats")
+public class UserStats {
+
+    @Id
+    private Long userId;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int postCount;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int commentCount;
+
+    // active up votes the user gave to posts and comments
+    @Column(columnDefinition = "integer default 0 not null")
+    private int votesGiven;
+
+    // active up votes on the user's posts
+    @Column(columnDefinition = "integer default 0 not null")
+    private int upVotesReceived;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int followerCount;
+
+    @Column(columnDefinition = "integer default 0 not null")
+    private int followingCount;
+
+
+    public UserStats(Long userId) {
+        this.userId = userId;
+    }
+}
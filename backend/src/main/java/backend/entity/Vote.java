@@ -1,5 +1,6 @@
 package backend.entity;
 
+import backend.util.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,11 +12,21 @@ import java.util.Date;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "votes")
+// VoteIndexInitializer creates the unique keys on databases from before they were declared here
+@Table(name = "votes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_votes_user_blog", columnNames = {"user_id", "blog_id"}),
+    @UniqueConstraint(name = "uk_votes_user_comment", columnNames = {"user_id", "comment_id"})
+}, indexes = {
+    @Index(name = "idx_votes_updated_time", columnList = "updatedTime"),
+    // counter reconciliation counts the votes of each post and comment
+    @Index(name = "idx_votes_blog", columnList = "blog_id"),
+    @Index(name = "idx_votes_comment", columnList = "comment_id")
+})
 public class Vote {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "votes_id_seq")
+    @SequenceGenerator(name = "votes_id_seq", sequenceName = "votes_id_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     private boolean upVote; // true for upvote, false for downvote
@@ -35,4 +46,6 @@ public class Vote {
     private boolean status;
 
     private Date createdTime; // Date when the vote was created
+
+    private Date updatedTime; // Date when the vote was last cast or withdrawn
 }
@@ -0,0 +1,17 @@
+package backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a user signs up through OAuth with a remote avatar. The avatar is downloaded after the
+ * login has completed.
+ */
+@Data
+@AllArgsConstructor
+public class AvatarImportEvent {
+
+    private Long userId;
+
+    private String avatarUrl;
+}
@@ -0,0 +1,33 @@
+package backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Published by {@code BlogService.createBlog}. Listeners that care about consistency should use
+ * {@code @TransactionalEventListener} so they only see posts that were committed.
+ */
+@Data
+@AllArgsConstructor
+public class BlogCreatedEvent {
+
+    private Long blogId;
+
+    private Long authorId;
+
+    private String authorName;
+
+    private String title;
+
+    // content with markup stripped
+    private String text;
+
+    private List<String> categories;
+
+    private List<String> tags;
+
+    private Date createdTime;
+}
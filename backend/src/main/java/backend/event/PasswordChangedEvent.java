@@ -0,0 +1,15 @@
+package backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a user resets their password, inside the transaction that stores the new hash and
+ * {@code passwordChangedTime}. Nodes drop the principals they cached for the user once it commits.
+ */
+@Data
+@AllArgsConstructor
+public class PasswordChangedEvent {
+
+    private String username;
+}
@@ -0,0 +1,17 @@
+package backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a user signs up, by password or through OAuth, inside the transaction that creates the
+ * user. Listeners use {@code @TransactionalEventListener} so they only see users that were committed.
+ */
+@Data
+@AllArgsConstructor
+public class UserCreatedEvent {
+
+    private Long userId;
+
+    private String username;
+}
@@ -0,0 +1,46 @@
+package backend.job;
+
+import backend.entity.Blog;
+import backend.repository.BlogRepository;
+import backend.util.Utils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+/**
+ * Fills excerpt, reading time and cover image for posts written before those columns existed. Works in
+ * small batches; the first run that finds nothing left stops the job for the life of the process, since new
+ * posts get their excerpt when they are saved. After a restart it costs a single scan.
+ */
+@Component
+@Log4j2
+public class BlogExcerptBackfillJob {
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    private volatile boolean done;
+
+
+    @Scheduled(initialDelayString = "${meet.excerpts.backfill-initial-delay-ms:30000}",
+               fixedDelayString = "${meet.excerpts.backfill-interval-ms:60000}")
+    @Transactional
+    public void backfill() {
+        if (done) {
+            return;
+        }
+        List<Blog> blogs = blogRepository.findTop100ByExcerptIsNull();
+        if (blogs.isEmpty()) {
+            done = true;
+            log.info("Every post has an excerpt, excerpt backfill stopped");
+            return;
+        }
+        blogs.forEach(Utils::applyContentSummary);
+        blogRepository.saveAll(blogs);
+        log.info("Backfilled excerpts for {} posts", blogs.size());
+    }
+}
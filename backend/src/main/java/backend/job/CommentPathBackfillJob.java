@@ -0,0 +1,57 @@
+package backend.job;
+
+import backend.entity.Comment;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+
+/**
+ * Fills path and depth of comments written before those columns existed, one level of the tree per
+ * statement: top level comments first, then every comment whose parent already has a path. The first run
+ * that fills nothing stops the job for the life of the process, since new comments are written with their
+ * path. After a restart it costs one run, each statement scanning comments for a missing path.
+ */
+@Component
+@Log4j2
+public class CommentPathBackfillJob {
+
+    private static final String SEGMENT = "LPAD(CAST(c.id AS VARCHAR(20)), " + Comment.PATH_SEGMENT_WIDTH + ", '0')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean done;
+
+
+    @Scheduled(initialDelayString = "${meet.comments.backfill-initial-delay-ms:10000}",
+               fixedDelayString = "${meet.comments.backfill-interval-ms:600000}")
+    @Transactional
+    public void backfill() {
+        if (done) {
+            return;
+        }
+        int filled = jdbcTemplate.update("UPDATE comments c SET path = " + SEGMENT + ", depth = 0 " +
+                "WHERE c.path IS NULL AND c.parent_comment_id IS NULL");
+        int level;
+        do {
+            level = jdbcTemplate.update("UPDATE comments c SET " +
+                    "path = (SELECT p.path FROM comments p WHERE p.id = c.parent_comment_id) || '" +
+                    Comment.PATH_SEPARATOR + "' || " + SEGMENT + ", " +
+                    "depth = (SELECT p.depth + 1 FROM comments p WHERE p.id = c.parent_comment_id) " +
+                    "WHERE c.path IS NULL AND EXISTS " +
+                    "(SELECT 1 FROM comments p WHERE p.id = c.parent_comment_id AND p.path IS NOT NULL)");
+            filled += level;
+        } while (level > 0);
+
+        if (filled == 0) {
+            done = true;
+            log.info("Every comment has a thread path, comment path backfill stopped");
+            return;
+        }
+        log.info("Backfilled thread paths for {} comments", filled);
+    }
+}
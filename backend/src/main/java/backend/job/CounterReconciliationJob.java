@@ -0,0 +1,67 @@
+package backend.job;
+
+import backend.service.VoteCounterBuffer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes the denormalized vote and comment counters on {@code blogs} and {@code comments} from the
+ * source rows and rewrites only the rows that drifted, a range of ids at a time, see CounterRepair. Also
+ * backfills the counters the first time the columns are added to an existing database. With the up votes
+ * written behind, posts voted on within {@code meet.votes.settle-ms} keep their up_votes until a later run,
+ * see VoteCounterBuffer.
+ */
+@Component
+@Log4j2
+public class CounterReconciliationJob {
+
+    private static final String UP_VOTES = " AND v.up_vote = true AND v.status = true";
+
+    private static final String DOWN_VOTES = " AND v.up_vote = false AND v.status = true";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    @Scheduled(initialDelayString = "${meet.counters.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${meet.counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int repaired = repairBlogUpVotes()
+                + repair("blogs", "down_votes", "LEFT JOIN votes v ON v.blog_id = t.id" + DOWN_VOTES, "count(v.id)")
+                + repair("blogs", "comment_count", "LEFT JOIN comments c ON c.blog_id = t.id", "count(c.id)")
+                + repair("comments", "up_votes", "LEFT JOIN votes v ON v.comment_id = t.id" + UP_VOTES, "count(v.id)")
+                + repair("comments", "down_votes", "LEFT JOIN votes v ON v.comment_id = t.id" + DOWN_VOTES, "count(v.id)")
+                + repair("comments", "comment_count", "LEFT JOIN comments c ON c.parent_comment_id = t.id", "count(c.id)");
+        if (repaired > 0) {
+            log.warn("Repaired {} drifted vote/comment counters", repaired);
+        }
+    }
+
+
+    private int repairBlogUpVotes() {
+        String join = "LEFT JOIN votes v ON v.blog_id = t.id" + UP_VOTES;
+        if (!voteCounterBuffer.isEnabled()) {
+            return repair("blogs", "up_votes", join, "count(v.id)");
+        }
+        return CounterRepair.repair(jdbcTemplate, new TransactionTemplate(transactionManager), "blogs", "id",
+                "up_votes", join, "count(v.id)", "AND t.id NOT IN (SELECT r.blog_id FROM votes r " +
+                "WHERE r.updated_time > ? AND r.blog_id IS NOT NULL)", voteCounterBuffer.settledBefore());
+    }
+
+
+    private int repair(String table, String column, String join, String expected) {
+        return CounterRepair.repair(jdbcTemplate, new TransactionTemplate(transactionManager), table, "id", column,
+                join, expected, "");
+    }
+}
@@ -0,0 +1,59 @@
+package backend.job;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Repairs one denormalized counter column, range of keys by range. Each range is counted with a single
+ * grouped join, so the source rows are read once through their index instead of once per counter row, and
+ * each range is repaired in a short transaction of its own. A drifted counter is only written if it still
+ * holds the value that was read; a concurrent increment wins and is checked again on the next run.
+ */
+final class CounterRepair {
+
+    private static final int RANGE = 10000;
+
+
+    private CounterRepair() {
+    }
+
+
+    /**
+     * @param join     joins the source rows to the counter row {@code t}, usually a LEFT JOIN
+     * @param expected aggregate over the joined rows that the column should hold
+     * @param filter   extra condition on {@code t}, may be empty, bound after the range
+     * @return the number of counters written
+     */
+    static int repair(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, String table, String key,
+                      String column, String join, String expected, String filter, Object... filterArgs) {
+        Long last = transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT max(" + key + ") FROM " + table, Long.class));
+        if (last == null) {
+            return 0;
+        }
+        String drifted = "SELECT t." + key + ", t." + column + ", " + expected + " FROM " + table + " t " + join
+                + " WHERE t." + key + " > ? AND t." + key + " <= ? " + filter
+                + " GROUP BY t." + key + ", t." + column + " HAVING " + expected + " <> t." + column;
+        String write = "UPDATE " + table + " SET " + column + " = ? WHERE " + key + " = ? AND " + column + " = ?";
+
+        int repaired = 0;
+        for (long from = 0; from < last; from += RANGE) {
+            Object[] args = new Object[filterArgs.length + 2];
+            args[0] = from;
+            args[1] = from + RANGE;
+            System.arraycopy(filterArgs, 0, args, 2, filterArgs.length);
+            repaired += transactionTemplate.execute(status -> {
+                List<Object[]> updates = new ArrayList<>();
+                jdbcTemplate.query(drifted, rs -> {
+                    updates.add(new Object[]{rs.getLong(3), rs.getLong(1), rs.getLong(2)});
+                }, args);
+                return updates.isEmpty() ? 0 : Arrays.stream(jdbcTemplate.batchUpdate(write, updates)).sum();
+            });
+        }
+        return repaired;
+    }
+}
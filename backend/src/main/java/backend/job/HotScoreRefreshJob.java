@@ -0,0 +1,93 @@
+package backend.job;
+
+import backend.config.DatabasePlatform;
+import backend.util.HotScore;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-applies the time decay to the stored hot scores. Votes update a post's score immediately, this job
+ * only accounts for time passing. Posts older than the window drop to zero once, so each run touches
+ * recent posts only. On PostgreSQL the scores are computed in place, a range of ids per statement and
+ * transaction; elsewhere they are read, computed with HotScore and written back in batches.
+ */
+@Component
+@Log4j2
+public class HotScoreRefreshJob {
+
+    // ids are handed out in increasing blocks, so the posts of the window fill a narrow id range
+    private static final int RANGE = 10000;
+
+    private static final String REFRESH_RANGE = "UPDATE blogs SET hot_score = " +
+            HotScore.sql("up_votes - down_votes", "created_time") +
+            " WHERE id >= ? AND id < ? AND created_time >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.hot.window-days:14}")
+    private int windowDays;
+
+
+    @Scheduled(initialDelayString = "${meet.hot.refresh-initial-delay-ms:30000}",
+               fixedDelayString = "${meet.hot.refresh-interval-ms:300000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        Timestamp cutoff = new Timestamp(now - TimeUnit.DAYS.toMillis(windowDays));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        int refreshed = databasePlatform.isPostgres()
+                ? refreshInRanges(transaction, cutoff)
+                : transaction.execute(status -> refreshOneByOne(cutoff, now));
+        int expired = transaction.execute(status ->
+                jdbcTemplate.update("UPDATE blogs SET hot_score = 0 WHERE created_time < ? AND hot_score <> 0", cutoff));
+        log.debug("Refreshed hot scores of {} posts, {} aged out", refreshed, expired);
+    }
+
+
+    private int refreshInRanges(TransactionTemplate transaction, Timestamp cutoff) {
+        // both ends come from the (created_time, id) index
+        Long first = transaction.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT min(id) FROM blogs WHERE created_time >= ?", Long.class, cutoff));
+        Long last = transaction.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT max(id) FROM blogs WHERE created_time >= ?", Long.class, cutoff));
+        if (first == null || last == null) {
+            return 0;
+        }
+        int refreshed = 0;
+        for (long from = first; from <= last; from += RANGE) {
+            long start = from;
+            refreshed += transaction.execute(status -> jdbcTemplate.update(REFRESH_RANGE, start, start + RANGE, cutoff));
+        }
+        return refreshed;
+    }
+
+
+    private int refreshOneByOne(Timestamp cutoff, long now) {
+        List<Object[]> scores = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, up_votes, down_votes, created_time FROM blogs WHERE created_time >= ?",
+                rs -> {
+                    double score = HotScore.compute(rs.getInt(2), rs.getInt(3), rs.getTimestamp(4), now);
+                    scores.add(new Object[]{score, rs.getLong(1)});
+                }, cutoff);
+        jdbcTemplate.batchUpdate("UPDATE blogs SET hot_score = ? WHERE id = ?", scores);
+        return scores.size();
+    }
+}
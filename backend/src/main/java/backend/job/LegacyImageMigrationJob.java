@@ -0,0 +1,137 @@
+package backend.job;
+
+import backend.entity.User;
+import backend.entity.UserImage;
+import backend.repository.UserRepository;
+import backend.service.ImageService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Blob;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves avatar and banner bytes from the legacy users.avatar_blob/banner_blob columns into user_images,
+ * generating variants on the way. Hibernate leaves the old columns in place, so each migrated value is
+ * nulled, and the job goes idle once both columns are empty or do not exist. As with an upload, one image
+ * at a time is read and resized outside any transaction, and each user is written in a short one.
+ */
+@Component
+@Log4j2
+public class LegacyImageMigrationJob {
+
+    private static final int BATCH_SIZE = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile boolean done;
+
+
+    @Scheduled(initialDelayString = "${meet.images.migrate-initial-delay-ms:10000}",
+               fixedDelayString = "${meet.images.migrate-interval-ms:60000}")
+    public void migrate() {
+        if (done) {
+            return;
+        }
+        int avatars = migrate(UserImage.Kind.AVATAR, "avatar_blob", "avatar_type");
+        int banners = migrate(UserImage.Kind.BANNER, "banner_blob", "banner_type");
+        if (avatars == 0 && banners == 0) {
+            done = true;
+            return;
+        }
+        log.info("Moved {} avatars and {} banners into user_images", avatars, banners);
+    }
+
+
+    private int migrate(UserImage.Kind kind, String blobColumn, String typeColumn) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<String> columnTypes = transactionTemplate.execute(status -> jdbcTemplate.queryForList(
+                "SELECT data_type FROM information_schema.columns WHERE table_name = 'users' AND column_name = ?",
+                String.class, blobColumn));
+        if (columnTypes.isEmpty()) {
+            return 0;
+        }
+        // @Lob byte[] was mapped to a large object on PostgreSQL, its oid has to be unlinked explicitly
+        boolean largeObject = "oid".equalsIgnoreCase(columnTypes.get(0));
+
+        List<Long> ids = transactionTemplate.execute(status -> jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE " + blobColumn + " IS NOT NULL ORDER BY id LIMIT " + BATCH_SIZE, Long.class));
+        for (Long id : ids) {
+            // large objects can only be read inside a transaction
+            LegacyImage legacy = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(
+                    "SELECT " + typeColumn + ", " + blobColumn + " FROM users WHERE id = ?", (rs, row) -> {
+                        Blob blob = rs.getBlob(2);
+                        return new LegacyImage(rs.getString(1), blob.getBytes(1, (int) blob.length()));
+                    }, id));
+            ImageService.RenderedImages images = render(id, kind, legacy);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                move(id, kind, legacy, images);
+                if (largeObject) {
+                    jdbcTemplate.queryForList("SELECT lo_unlink(" + blobColumn + ") FROM users WHERE id = ?", id);
+                }
+                jdbcTemplate.update("UPDATE users SET " + blobColumn + " = NULL WHERE id = ?", id);
+            });
+        }
+        return ids.size();
+    }
+
+
+    // null if the image can not be decoded
+    private ImageService.RenderedImages render(Long userId, UserImage.Kind kind, LegacyImage legacy) {
+        try {
+            ImageService.ProcessedImage image = imageService.sanitize(legacy.getData());
+            return kind == UserImage.Kind.AVATAR ? imageService.renderAvatar(image) : imageService.renderBanner(image);
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Could not decode legacy {} of user {}, storing it as is: {}", kind, userId, e.getMessage());
+            return null;
+        }
+    }
+
+
+    private void move(Long userId, UserImage.Kind kind, LegacyImage legacy, ImageService.RenderedImages images) {
+        Optional<User> optionalUser = userRepository.findUserById(userId);
+        if (optionalUser.isEmpty()) {
+            return;
+        }
+        User user = optionalUser.get();
+        if (images == null) {
+            // keep serving what was uploaded rather than losing it
+            imageService.applyRaw(user, kind, legacy.getContentType(), legacy.getData());
+        } else if (kind == UserImage.Kind.AVATAR) {
+            imageService.applyAvatar(user, user.getAvatarName(), images);
+        } else {
+            imageService.applyBanner(user, user.getBannerName(), images);
+        }
+        userRepository.save(user);
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    private static class LegacyImage {
+
+        private String contentType;
+
+        private byte[] data;
+    }
+}
@@ -0,0 +1,159 @@
+package backend.job;
+
+import backend.entity.MailOutbox;
+import backend.repository.MailOutboxRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the mail outbox. Each run leases a batch of due mails in a short transaction, sends them over one
+ * SMTP connection with no transaction or connection held, then records the outcome. A failed mail is
+ * retried with exponential backoff until {@code meet.mail.max-attempts}. A dispatcher that dies mid batch
+ * leaves its lease to expire, so a mail may be sent twice but is never lost.
+ */
+@Component
+@Log4j2
+public class MailOutboxDispatcher {
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.mail.from:meet.community.mail@gmail.com}")
+    private String from;
+
+    @Value("${meet.mail.batch-size:50}")
+    private int batchSize;
+
+    @Value("${meet.mail.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${meet.mail.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${meet.mail.backoff-initial-ms:5000}")
+    private long backoffInitialMs;
+
+    @Value("${meet.mail.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${meet.mail.retention-days:7}")
+    private int retentionDays;
+
+
+    @Scheduled(initialDelayString = "${meet.mail.dispatch-initial-delay-ms:5000}",
+               fixedDelayString = "${meet.mail.dispatch-interval-ms:5000}")
+    public void dispatch() {
+        List<MailOutbox> batch;
+        do {
+            batch = lease();
+            if (!batch.isEmpty()) {
+                record(batch, send(batch));
+            }
+        } while (batch.size() == batchSize);
+    }
+
+
+    @Scheduled(initialDelayString = "${meet.mail.prune-interval-ms:3600000}",
+               fixedDelayString = "${meet.mail.prune-interval-ms:3600000}")
+    @Transactional
+    public void prune() {
+        int removed = mailOutboxRepository.deleteFinishedBefore(MailOutbox.Status.PENDING,
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)));
+        log.debug("Pruned {} finished mails", removed);
+    }
+
+
+    private List<MailOutbox> lease() {
+        String owner = UUID.randomUUID().toString();
+        Date now = new Date();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> ids = mailOutboxRepository.findDueIds(MailOutbox.Status.PENDING, now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty() || mailOutboxRepository.lease(ids, MailOutbox.Status.PENDING, owner, now,
+                    new Date(now.getTime() + leaseMs)) == 0) {
+                return List.of();
+            }
+            return mailOutboxRepository.findByLeaseOwner(owner);
+        });
+    }
+
+
+    // returns the errors of the mails that failed, keyed by outbox id
+    private Map<Long, String> send(List<MailOutbox> batch) {
+        Map<SimpleMailMessage, Long> ids = new IdentityHashMap<>();
+        for (MailOutbox mail : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(from);
+            message.setTo(mail.getRecipient());
+            message.setSubject(mail.getSubject());
+            message.setText(mail.getBody());
+            ids.put(message, mail.getId());
+        }
+
+        Map<Long, String> failed = new HashMap<>();
+        try {
+            mailSender.send(ids.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            ids.forEach((message, id) -> {
+                Exception cause = failedMessages.isEmpty() ? e : failedMessages.get(message);
+                if (cause != null) {
+                    failed.put(id, String.valueOf(cause.getMessage()));
+                }
+            });
+        } catch (MailException e) {
+            // connecting or authenticating failed, nothing was sent
+            ids.values().forEach(id -> failed.put(id, String.valueOf(e.getMessage())));
+        }
+        return failed;
+    }
+
+
+    private void record(List<MailOutbox> batch, Map<Long, String> failed) {
+        Date now = new Date();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (MailOutbox mail : batch) {
+                mail.setLeaseOwner(null);
+                mail.setLeaseExpirationTime(null);
+                String error = failed.get(mail.getId());
+                if (error == null) {
+                    mail.setStatus(MailOutbox.Status.SENT);
+                    mail.setSentTime(now);
+                    continue;
+                }
+                mail.setAttempts(mail.getAttempts() + 1);
+                mail.setLastError(error.length() > 512 ? error.substring(0, 512) : error);
+                if (mail.getAttempts() >= maxAttempts) {
+                    mail.setStatus(MailOutbox.Status.FAILED);
+                    log.error("Giving up on mail {} to {}: {}", mail.getId(), mail.getRecipient(), error);
+                } else {
+                    long backoff = Math.min(backoffMaxMs, backoffInitialMs << Math.min(mail.getAttempts() - 1, 30));
+                    mail.setNextAttemptTime(new Date(now.getTime() + backoff));
+                }
+            }
+            mailOutboxRepository.saveAll(batch);
+        });
+        if (!failed.isEmpty()) {
+            log.warn("{} of {} mails failed and will be retried", failed.size(), batch.size());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package backend.job;
+
+import backend.service.VoteCounterBuffer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes {@code user_stats} from the source rows and rewrites only the totals that drifted, a range of
+ * users at a time, see CounterRepair. Creates the missing rows first, which also backfills every existing
+ * user the first time it runs. With the up votes written behind, authors whose posts were voted on within
+ * {@code meet.votes.settle-ms} keep their up_votes_received until a later run, see VoteCounterBuffer.
+ */
+@Component
+@Log4j2
+public class UserStatsReconciliationJob {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    @Scheduled(initialDelayString = "${meet.user-stats.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${meet.user-stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        // created empty, the repairs below fill them in
+        int created = new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.update(
+                "INSERT INTO user_stats (user_id, post_count, comment_count, votes_given, up_votes_received, " +
+                "follower_count, following_count) SELECT u.id, 0, 0, 0, 0, 0, 0 FROM users u " +
+                "WHERE NOT EXISTS (SELECT 1 FROM user_stats s WHERE s.user_id = u.id)"));
+        if (created > 0) {
+            log.info("Created user stats for {} users", created);
+        }
+
+        // received up votes are summed from the post counters, which CounterReconciliationJob keeps exact
+        int repaired = repair("post_count", "LEFT JOIN blogs b ON b.user_id = t.user_id", "count(b.id)")
+                + repair("comment_count", "LEFT JOIN comments c ON c.user_id = t.user_id", "count(c.id)")
+                + repair("votes_given", "LEFT JOIN votes v ON v.user_id = t.user_id AND v.up_vote = true " +
+                        "AND v.status = true", "count(v.id)")
+                + repairUpVotesReceived()
+                + repair("follower_count", "LEFT JOIN user_following f ON f.following_user_id = t.user_id",
+                        "count(f.user_id)")
+                + repair("following_count", "LEFT JOIN user_following f ON f.user_id = t.user_id",
+                        "count(f.following_user_id)");
+        if (repaired > 0) {
+            log.warn("Repaired {} drifted user stats", repaired);
+        }
+    }
+
+
+    private int repairUpVotesReceived() {
+        String join = "LEFT JOIN blogs b ON b.user_id = t.user_id";
+        String expected = "COALESCE(SUM(b.up_votes), 0)";
+        if (!voteCounterBuffer.isEnabled()) {
+            return repair("up_votes_received", join, expected);
+        }
+        return CounterRepair.repair(jdbcTemplate, new TransactionTemplate(transactionManager), "user_stats",
+                "user_id", "up_votes_received", join, expected, "AND t.user_id NOT IN (SELECT r.user_id " +
+                "FROM blogs r JOIN votes v ON v.blog_id = r.id WHERE v.updated_time > ? AND r.user_id IS NOT NULL)",
+                voteCounterBuffer.settledBefore());
+    }
+
+
+    private int repair(String column, String join, String expected) {
+        return CounterRepair.repair(jdbcTemplate, new TransactionTemplate(transactionManager), "user_stats",
+                "user_id", column, join, expected, "");
+    }
+}
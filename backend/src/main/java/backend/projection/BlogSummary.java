@@ -0,0 +1,41 @@
+package backend.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Flat row used by the post list endpoints. Selected directly by the list queries so that
+ * none of the blog associations are initialised while a page is being built.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BlogSummary {
+
+    private Long id;
+
+    private String title;
+
+    private String excerpt;
+
+    private Integer readingTime;
+
+    private String coverImage;
+
+    private Long authorId;
+
+    private String authorName;
+
+    private String authorAvatarHash;
+
+    private Integer upVotes;
+
+    private Integer commentCount;
+
+    private Date createdTime;
+
+    private double hotScore;
+}
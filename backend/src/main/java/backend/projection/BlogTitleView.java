@@ -0,0 +1,11 @@
+package backend.projection;
+
+/**
+ * (blog id, title) pair returned by the batched category and tag lookups.
+ */
+public interface BlogTitleView {
+
+    Long getBlogId();
+
+    String getTitle();
+}
@@ -0,0 +1,18 @@
+package backend.projection;
+
+import java.util.Date;
+
+/**
+ * Inputs of the hot score and the post's author, read straight from the row so that counters updated in
+ * bulk are seen.
+ */
+public interface BlogVoteState {
+
+    int getUpVotes();
+
+    int getDownVotes();
+
+    Date getCreatedTime();
+
+    Long getAuthorId();
+}
@@ -0,0 +1,31 @@
+package backend.projection;
+
+import java.util.Date;
+
+/**
+ * Columns of a comment needed to render it in a thread, with its author's name and avatar hash.
+ */
+public interface CommentView {
+
+    Long getId();
+
+    Long getParentId();
+
+    String getContent();
+
+    int getUpVotes();
+
+    int getDownVotes();
+
+    int getReplyCount();
+
+    String getPath();
+
+    Date getCreatedTime();
+
+    Long getAuthorId();
+
+    String getAuthorName();
+
+    String getAuthorAvatarHash();
+}
@@ -0,0 +1,13 @@
+package backend.projection;
+
+/**
+ * Image bytes plus the metadata needed to serve them.
+ */
+public interface ImageView {
+
+    String getType();
+
+    String getHash();
+
+    byte[] getData();
+}
@@ -0,0 +1,22 @@
+package backend.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A user found by fuzzy name lookup, with its trigram similarity to the query.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserMatch {
+
+    private Long id;
+
+    private String username;
+
+    private String avatarHash;
+
+    private double similarity;
+}
@@ -1,15 +1,52 @@
 package backend.repository;
 
 import backend.entity.Blog;
-import org.springframework.data.domain.Page;
+import backend.projection.BlogTitleView;
+import backend.projection.BlogVoteState;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface BlogRepository extends JpaRepository<Blog, Long>, JpaSpecificationExecutor<Blog> {
-    @Query("SELECT b FROM Blog b LEFT JOIN b.votes v GROUP BY b.id ORDER BY COUNT(v) DESC")
-    Page<Blog> findAllOrderByVotes(Pageable pageable);
+public interface BlogRepository extends JpaRepository<Blog, Long>, JpaSpecificationExecutor<Blog>, BlogRepositoryCustom {
+    @Query("SELECT b.id AS blogId, c.title AS title FROM Blog b JOIN b.categories c WHERE b.id IN :blogIds")
+    List<BlogTitleView> findCategoryTitlesByBlogIds(@Param("blogIds") Collection<Long> blogIds);
+
+    @Query("SELECT b.id AS blogId, t.title AS title FROM Blog b JOIN b.tags t WHERE b.id IN :blogIds")
+    List<BlogTitleView> findTagTitlesByBlogIds(@Param("blogIds") Collection<Long> blogIds);
+
+    List<Blog> findTop100ByExcerptIsNull();
+
+    // batches for reindexing, the author is fetched in the same query
+    @EntityGraph(attributePaths = "user")
+    List<Blog> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    List<Blog> findByCreatedTimeGreaterThanEqualAndIdGreaterThanOrderByIdAsc(Date createdTime, Long id, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Blog b SET b.upVotes = b.upVotes + :upDelta, b.downVotes = b.downVotes + :downDelta WHERE b.id = :id")
+    int adjustVoteCounts(@Param("id") Long id, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    @Query("SELECT b.upVotes AS upVotes, b.downVotes AS downVotes, b.createdTime AS createdTime, " +
+           "b.user.id AS authorId FROM Blog b WHERE b.id = :id")
+    Optional<BlogVoteState> findVoteStateById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Blog b SET b.hotScore = :hotScore WHERE b.id = :id")
+    int updateHotScore(@Param("id") Long id, @Param("hotScore") double hotScore);
+
+    @Modifying
+    @Query("UPDATE Blog b SET b.commentCount = b.commentCount + 1 WHERE b.id = :id")
+    int incrementCommentCount(@Param("id") Long id);
 }
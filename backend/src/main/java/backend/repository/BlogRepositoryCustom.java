@@ -0,0 +1,25 @@
+package backend.repository;
+
+import backend.entity.Blog;
+import backend.projection.BlogSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface BlogRepositoryCustom {
+
+    /**
+     * Runs the given specification as a {@link BlogSummary} projection, so a page costs one select plus
+     * one count regardless of the page size.
+     */
+    Page<BlogSummary> findSummaries(Specification<Blog> specification, Pageable pageable);
+
+    /**
+     * Same projection without the count query, returning at most {@code limit} rows. Used by the keyset
+     * endpoints where the specification already positions the query after the previous slice.
+     */
+    List<BlogSummary> findSummaries(Specification<Blog> specification, Sort sort, int limit);
+}
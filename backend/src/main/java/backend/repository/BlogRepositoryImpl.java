@@ -0,0 +1,93 @@
+package backend.repository;
+
+import backend.entity.Blog;
+import backend.entity.User;
+import backend.projection.BlogSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class BlogRepositoryImpl implements BlogRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<BlogSummary> findSummaries(Specification<Blog> specification, Pageable pageable) {
+        TypedQuery<BlogSummary> typedQuery = createSummaryQuery(specification, pageable.getSort());
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<BlogSummary> content = typedQuery.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(specification));
+    }
+
+
+    @Override
+    public List<BlogSummary> findSummaries(Specification<Blog> specification, Sort sort, int limit) {
+        return createSummaryQuery(specification, sort).setMaxResults(limit).getResultList();
+    }
+
+
+    private TypedQuery<BlogSummary> createSummaryQuery(Specification<Blog> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BlogSummary> query = criteriaBuilder.createQuery(BlogSummary.class);
+        Root<Blog> root = query.from(Blog.class);
+        Join<Blog, User> user = root.join("user");
+        query.select(criteriaBuilder.construct(BlogSummary.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("excerpt"),
+                root.get("readingTime"),
+                root.get("coverImage"),
+                user.get("id"),
+                user.get("username"),
+                user.get("avatarHash"),
+                root.get("upVotes"),
+                root.get("commentCount"),
+                root.get("createdTime"),
+                root.get("hotScore")));
+        applySpecification(specification, root, query, criteriaBuilder);
+        if (sort.isSorted()) {
+            query.orderBy(toOrders(sort, root, criteriaBuilder));
+        }
+        return entityManager.createQuery(query);
+    }
+
+
+    private long count(Specification<Blog> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Blog> root = query.from(Blog.class);
+        applySpecification(specification, root, query, criteriaBuilder);
+        query.select(query.isDistinct() ? criteriaBuilder.countDistinct(root) : criteriaBuilder.count(root));
+        // the select is already distinct on the count itself
+        query.distinct(false);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+
+    private void applySpecification(Specification<Blog> specification, Root<Blog> root, CriteriaQuery<?> query,
+                                    CriteriaBuilder criteriaBuilder) {
+        if (specification == null) {
+            return;
+        }
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package backend.repository;
 
+import backend.dto.CategoryResponseDTO;
 import backend.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Integer> {
+public interface CategoryRepository extends JpaRepository<Category, Long> {
     boolean existsByTitle(String title);
 
-    Category findByTitle(String title);
+    @Query("SELECT new backend.dto.CategoryResponseDTO(c.id, c.title, c.description) FROM Category c ORDER BY c.id")
+    List<CategoryResponseDTO> findCatalog();
 
-    Optional<Category> findById(Long id);
+    @Query("SELECT new backend.dto.CategoryResponseDTO(c.id, c.title, c.description) FROM Category c WHERE c.title IN :titles")
+    List<CategoryResponseDTO> findCatalogByTitleIn(@Param("titles") Collection<String> titles);
 }
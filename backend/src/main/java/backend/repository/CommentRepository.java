@@ -1,9 +1,17 @@
 package backend.repository;
 
 import backend.entity.Comment;
+import backend.projection.CommentView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +19,25 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
     Optional<Comment> findById(Long id);
 
     Integer countCommentsByUserId(Long id);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.commentCount = c.commentCount + 1 WHERE c.id = :id")
+    int incrementCommentCount(@Param("id") Long id);
+
+    // comments without a path are left out until CommentPathBackfillJob has filled it
+    @Query(value = "SELECT c.id FROM Comment c WHERE c.blog.id = :blogId AND c.parentComment IS NULL " +
+                   "AND c.path IS NOT NULL ORDER BY c.id",
+           countQuery = "SELECT count(c) FROM Comment c WHERE c.blog.id = :blogId AND c.parentComment IS NULL " +
+                        "AND c.path IS NOT NULL")
+    Page<Long> findTopLevelIds(@Param("blogId") Long blogId, Pageable pageable);
+
+    @Query("SELECT c.id FROM Comment c WHERE c.parentComment.id = :parentId AND c.id > :afterId " +
+           "AND c.path IS NOT NULL ORDER BY c.id")
+    List<Long> findReplyIds(@Param("parentId") Long parentId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c.id AS id, p.id AS parentId, c.content AS content, c.upVotes AS upVotes, " +
+           "c.downVotes AS downVotes, c.commentCount AS replyCount, c.path AS path, c.createdTime AS createdTime, " +
+           "u.id AS authorId, u.username AS authorName, u.avatarHash AS authorAvatarHash " +
+           "FROM Comment c JOIN c.user u LEFT JOIN c.parentComment p WHERE c.id IN :ids")
+    List<CommentView> findViews(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,58 @@
+package backend.repository;
+
+import backend.config.DatabasePlatform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Subtree lookups over the materialized comment paths. A subtree is the range of paths between the anchor's
+ * path followed by the separator and by the next character, so a page of threads is read with one index
+ * range scan on (blog_id, path) per anchor, whatever the size of the post. Paths only hold digits and the
+ * separator; on PostgreSQL they are compared byte by byte, as CommentPathIndexInitializer indexes them.
+ */
+@Repository
+public class CommentTreeRepository {
+
+    // the window caps how many replies of each comment are returned, the rest is loaded on demand;
+    // '0' is the character after the separator '/'
+    private static final String DESCENDANTS =
+            "SELECT t.id FROM (" +
+            " SELECT c.id, c.path, ROW_NUMBER() OVER (PARTITION BY c.parent_comment_id ORDER BY c.id) AS rn" +
+            " FROM comments a JOIN comments c ON c.blog_id = a.blog_id" +
+            " AND c.path%1$s > a.path || '/' AND c.path%1$s < a.path || '0'" +
+            " WHERE a.id IN (:anchorIds) AND c.depth <= a.depth + :maxDepth" +
+            ") t WHERE t.rn <= :perParent ORDER BY t.path%1$s";
+
+    // H2 compares strings by code point already
+    private static final String DESCENDANTS_PORTABLE = String.format(DESCENDANTS, "");
+
+    private static final String DESCENDANTS_POSTGRES = String.format(DESCENDANTS, " COLLATE \"C\"");
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+
+    /**
+     * Ids of the replies below the anchors, at most {@code maxDepth} levels down and {@code perParent} per
+     * comment, in thread order. Replies of a comment that was cut by {@code perParent} are returned too and
+     * have to be dropped by the caller.
+     */
+    public List<Long> findDescendantIds(Collection<Long> anchorIds, int maxDepth, int perParent) {
+        if (anchorIds.isEmpty() || maxDepth < 1) {
+            return List.of();
+        }
+        String sql = databasePlatform.isPostgres() ? DESCENDANTS_POSTGRES : DESCENDANTS_PORTABLE;
+        return jdbcTemplate.queryForList(sql, new MapSqlParameterSource()
+                .addValue("anchorIds", anchorIds)
+                .addValue("maxDepth", maxDepth)
+                .addValue("perParent", perParent), Long.class);
+    }
+}
@@ -0,0 +1,106 @@
+package backend.repository;
+
+import backend.config.DatabasePlatform;
+import backend.projection.UserMatch;
+import backend.util.Trigrams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Typo tolerant lookups of users by name and posts by title or author. On PostgreSQL the {@code %} and
+ * {@code <%} operators use the pg_trgm GIN indexes, so latency does not grow with the table; elsewhere the
+ * same ranking is computed in memory over every row, which is only meant for tests and local setups.
+ * Callers must run inside a transaction, the threshold is set per transaction.
+ */
+@Repository
+public class FuzzySearchRepository {
+
+    private static final String MATCHING_BLOGS =
+            "WITH matches AS (" +
+            " SELECT b.id, word_similarity(lower(?), lower(b.title)) AS score FROM blogs b" +
+            " WHERE lower(?) <% lower(b.title)" +
+            " UNION ALL" +
+            " SELECT b.id, similarity(lower(u.username), lower(?)) AS score FROM users u JOIN blogs b ON b.user_id = u.id" +
+            " WHERE lower(u.username) % lower(?)" +
+            ") ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+
+    public List<UserMatch> findUsers(String term, double threshold, int limit) {
+        if (databasePlatform.isPostgres()) {
+            setThreshold(threshold);
+            return jdbcTemplate.query(
+                    "SELECT id, username, avatar_hash, similarity(lower(username), lower(?)) AS score FROM users " +
+                    "WHERE lower(username) % lower(?) ORDER BY score DESC, id LIMIT ?",
+                    (rs, row) -> new UserMatch(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDouble(4)),
+                    term, term, limit);
+        }
+
+        return jdbcTemplate.query("SELECT id, username, avatar_hash FROM users",
+                        (rs, row) -> new UserMatch(rs.getLong(1), rs.getString(2), rs.getString(3),
+                                Trigrams.similarity(rs.getString(2), term)))
+                .stream()
+                .filter(match -> match.getSimilarity() >= threshold)
+                .sorted(Comparator.comparingDouble(UserMatch::getSimilarity).reversed().thenComparing(UserMatch::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+
+    // post ids whose title is close to the term or whose author's name is, best match first
+    public Page<Long> findBlogIds(String term, double threshold, Pageable pageable) {
+        if (databasePlatform.isPostgres()) {
+            setThreshold(threshold);
+            // the window counts the groups before LIMIT, so the matches are only computed once
+            List<Long> ids = new ArrayList<>();
+            long[] total = {0};
+            jdbcTemplate.query(MATCHING_BLOGS +
+                    "SELECT id, count(*) OVER () FROM matches GROUP BY id ORDER BY max(score) DESC, id DESC LIMIT ? OFFSET ?",
+                    rs -> {
+                        ids.add(rs.getLong(1));
+                        total[0] = rs.getLong(2);
+                    }, term, term, term, term, pageable.getPageSize(), pageable.getOffset());
+            if (ids.isEmpty() && pageable.getOffset() > 0) {
+                // past the last page no row carries the total
+                total[0] = jdbcTemplate.queryForObject(MATCHING_BLOGS + "SELECT count(DISTINCT id) FROM matches",
+                        Long.class, term, term, term, term);
+            }
+            return new PageImpl<>(ids, pageable, total[0]);
+        }
+
+        List<Map.Entry<Long, Double>> matches = jdbcTemplate.query(
+                        "SELECT b.id, b.title, u.username FROM blogs b JOIN users u ON u.id = b.user_id",
+                        (rs, row) -> Map.entry(rs.getLong(1), Math.max(Trigrams.wordSimilarity(term, rs.getString(2)),
+                                Trigrams.similarity(rs.getString(3), term))))
+                .stream()
+                .filter(match -> match.getValue() >= threshold)
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()))
+                .collect(Collectors.toList());
+        List<Long> ids = matches.stream().skip(pageable.getOffset()).limit(pageable.getPageSize())
+                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return new PageImpl<>(ids, pageable, matches.size());
+    }
+
+
+    private void setThreshold(double threshold) {
+        String value = String.valueOf(threshold);
+        jdbcTemplate.queryForList("SELECT set_config('pg_trgm.similarity_threshold', ?, true), " +
+                "set_config('pg_trgm.word_similarity_threshold', ?, true)", value, value);
+    }
+}
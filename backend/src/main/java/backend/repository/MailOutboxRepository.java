@@ -0,0 +1,41 @@
+package backend.repository;
+
+import backend.entity.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    Optional<MailOutbox> findFirstByUserIdAndKindAndStatusAndLeaseOwnerIsNull(Long userId, String kind,
+                                                                             MailOutbox.Status status);
+
+    boolean existsByUserIdAndKindAndStatusAndSentTimeAfter(Long userId, String kind, MailOutbox.Status status, Date after);
+
+    @Query("SELECT m.id FROM MailOutbox m WHERE m.status = :pending AND m.nextAttemptTime <= :now " +
+           "AND (m.leaseExpirationTime IS NULL OR m.leaseExpirationTime < :now) ORDER BY m.id")
+    List<Long> findDueIds(@Param("pending") MailOutbox.Status pending, @Param("now") Date now, Pageable pageable);
+
+    // the conditions are checked again, a row leased by another dispatcher in between is skipped
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.leaseOwner = :owner, m.leaseExpirationTime = :until " +
+           "WHERE m.id IN :ids AND m.status = :pending " +
+           "AND (m.leaseExpirationTime IS NULL OR m.leaseExpirationTime < :now)")
+    int lease(@Param("ids") Collection<Long> ids, @Param("pending") MailOutbox.Status pending,
+              @Param("owner") String owner, @Param("now") Date now, @Param("until") Date until);
+
+    List<MailOutbox> findByLeaseOwner(String leaseOwner);
+
+    @Modifying
+    @Query("DELETE FROM MailOutbox m WHERE m.status <> :pending AND m.createdTime < :before")
+    int deleteFinishedBefore(@Param("pending") MailOutbox.Status pending, @Param("before") Date before);
+}
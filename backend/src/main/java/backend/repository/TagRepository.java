@@ -1,16 +1,22 @@
 package backend.repository;
 
+import backend.dto.TagResponseDTO;
 import backend.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface TagRepository extends JpaRepository<Tag, Integer> {
+public interface TagRepository extends JpaRepository<Tag, Long> {
     boolean existsByTitle(String title);
 
-    Tag findByTitle(String title);
+    @Query("SELECT new backend.dto.TagResponseDTO(t.id, t.title, t.description) FROM Tag t ORDER BY t.id")
+    List<TagResponseDTO> findCatalog();
 
-    Optional<Tag> findById(Long id);
+    @Query("SELECT new backend.dto.TagResponseDTO(t.id, t.title, t.description) FROM Tag t WHERE t.title IN :titles")
+    List<TagResponseDTO> findCatalogByTitleIn(@Param("titles") Collection<String> titles);
 }
@@ -0,0 +1,150 @@
+package backend.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads and writes of timeline_entries. Fan-out inserts one row per follower, so it goes through
+ * JdbcTemplate batches rather than the entity manager.
+ */
+@Repository
+public class TimelineRepository {
+
+    // newest first, (created_time, id) is the keyset. A row comparison, unlike the equivalent OR, is an index
+    // condition, so a deep page seeks to the cursor instead of filtering every newer row
+    private static final String BEFORE_ENTRY = " AND (t.created_time, t.blog_id) < (?, ?)";
+
+    private static final String BEFORE_POST = " AND (b.created_time, b.id) < (?, ?)";
+
+    // a post stays in a feed while the user still follows its author, one of its tags or one of its categories
+    private static final String UNREACHABLE = " AND NOT EXISTS (SELECT 1 FROM blogs b" +
+            " JOIN user_following uf ON uf.following_user_id = b.user_id WHERE b.id = t.blog_id AND uf.user_id = t.user_id)" +
+            " AND NOT EXISTS (SELECT 1 FROM blog_tags bt" +
+            " JOIN user_tags ut ON ut.tag_id = bt.tag_id WHERE bt.blog_id = t.blog_id AND ut.user_id = t.user_id)" +
+            " AND NOT EXISTS (SELECT 1 FROM blog_categories bc" +
+            " JOIN user_categories uc ON uc.category_id = bc.category_id WHERE bc.blog_id = t.blog_id AND uc.user_id = t.user_id)";
+
+    private static final RowMapper<Entry> ENTRY = (rs, row) -> new Entry(rs.getLong(1), rs.getTimestamp(2));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    // the denormalized total, so deciding how to deliver a post does not count the followers
+    public int countFollowers(Long userId) {
+        List<Integer> count = jdbcTemplate.queryForList(
+                "SELECT follower_count FROM user_stats WHERE user_id = ?", Integer.class, userId);
+        return count.isEmpty() ? 0 : count.get(0);
+    }
+
+
+    public void markPulled(Long blogId) {
+        jdbcTemplate.update("UPDATE blogs SET pulled = true WHERE id = ?", blogId);
+    }
+
+
+    /**
+     * Users who follow the post's tags or categories, and its author unless {@code includeAuthorFollowers}
+     * is false. The author is never included.
+     */
+    public List<Long> findRecipients(Long blogId, Long authorId, boolean includeAuthorFollowers) {
+        String sql = "SELECT ut.user_id FROM user_tags ut JOIN blog_tags bt ON bt.tag_id = ut.tag_id WHERE bt.blog_id = ?" +
+                " UNION SELECT uc.user_id FROM user_categories uc JOIN blog_categories bc ON bc.category_id = uc.category_id" +
+                " WHERE bc.blog_id = ?";
+        List<Object> args = new ArrayList<>(List.of(blogId, blogId));
+        if (includeAuthorFollowers) {
+            sql += " UNION SELECT user_id FROM user_following WHERE following_user_id = ?";
+            args.add(authorId);
+        }
+        List<Long> recipients = jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+        recipients.remove(authorId);
+        return recipients;
+    }
+
+
+    public void insert(Long blogId, Date createdTime, List<Long> userIds) {
+        Timestamp time = new Timestamp(createdTime.getTime());
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            rows.add(new Object[]{userId, blogId, time});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO timeline_entries (user_id, blog_id, created_time) VALUES (?, ?, ?)", rows);
+    }
+
+
+    // entries written by fan-out, newest first and strictly after the cursor if one is given
+    public List<Entry> findEntries(Long userId, Date before, Long beforeId, int limit) {
+        if (before == null) {
+            return jdbcTemplate.query("SELECT t.blog_id, t.created_time FROM timeline_entries t WHERE t.user_id = ?" +
+                    " ORDER BY t.created_time DESC, t.blog_id DESC LIMIT ?", ENTRY, userId, limit);
+        }
+        Timestamp time = new Timestamp(before.getTime());
+        return jdbcTemplate.query("SELECT t.blog_id, t.created_time FROM timeline_entries t WHERE t.user_id = ?" +
+                BEFORE_ENTRY + " ORDER BY t.created_time DESC, t.blog_id DESC LIMIT ?",
+                ENTRY, userId, time, beforeId, limit);
+    }
+
+
+    /**
+     * Posts by followed authors that were marked pulled when posted. Those are skipped by fan-out and merged
+     * into the feed on read instead, whatever the author's follower count is now.
+     */
+    public List<Entry> findPulledPosts(Long userId, Date before, Long beforeId, int limit) {
+        String sql = "SELECT b.id, b.created_time FROM blogs b JOIN user_following uf ON uf.following_user_id = b.user_id" +
+                " WHERE uf.user_id = ? AND b.pulled = true";
+        if (before == null) {
+            return jdbcTemplate.query(sql + " ORDER BY b.created_time DESC, b.id DESC LIMIT ?",
+                    ENTRY, userId, limit);
+        }
+        Timestamp time = new Timestamp(before.getTime());
+        return jdbcTemplate.query(sql + BEFORE_POST + " ORDER BY b.created_time DESC, b.id DESC LIMIT ?",
+                ENTRY, userId, time, beforeId, limit);
+    }
+
+
+    /**
+     * Entries of {@code userId} for posts by {@code authorId} that no longer reach the user, to be called once
+     * the follow row is gone. The same goes for {@link #deleteUnfollowedTag} and {@link #deleteUnfollowedCategory}.
+     */
+    public int deleteUnfollowedAuthor(Long userId, Long authorId) {
+        return jdbcTemplate.update("DELETE FROM timeline_entries t WHERE t.user_id = ?" +
+                " AND t.blog_id IN (SELECT id FROM blogs WHERE user_id = ?)" + UNREACHABLE, userId, authorId);
+    }
+
+
+    public int deleteUnfollowedTag(Long userId, Long tagId) {
+        return jdbcTemplate.update("DELETE FROM timeline_entries t WHERE t.user_id = ?" +
+                " AND t.blog_id IN (SELECT blog_id FROM blog_tags WHERE tag_id = ?)" + UNREACHABLE, userId, tagId);
+    }
+
+
+    public int deleteUnfollowedCategory(Long userId, Long categoryId) {
+        return jdbcTemplate.update("DELETE FROM timeline_entries t WHERE t.user_id = ?" +
+                " AND t.blog_id IN (SELECT blog_id FROM blog_categories WHERE category_id = ?)" + UNREACHABLE,
+                userId, categoryId);
+    }
+
+
+    public int deleteOlderThan(Date cutoff) {
+        return jdbcTemplate.update("DELETE FROM timeline_entries WHERE created_time < ?", new Timestamp(cutoff.getTime()));
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+
+        private Long blogId;
+
+        private Date createdTime;
+    }
+}
@@ -0,0 +1,31 @@
+package backend.repository;
+
+import backend.entity.UserImage;
+import backend.projection.ImageView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserImageRepository extends JpaRepository<UserImage, Long> {
+
+    // smallest variants at least minWidth wide, pass a one row pageable to get the best fit
+    @Query("SELECT i.contentType AS type, i.hash AS hash, i.data AS data FROM UserImage i " +
+           "WHERE i.user.id = :userId AND i.kind = :kind AND i.width >= :minWidth ORDER BY i.width ASC")
+    List<ImageView> findVariants(@Param("userId") Long userId, @Param("kind") UserImage.Kind kind,
+                                 @Param("minWidth") int minWidth, Pageable pageable);
+
+    @Query("SELECT i.contentType AS type, i.hash AS hash, i.data AS data FROM UserImage i " +
+           "WHERE i.user.id = :userId AND i.kind = :kind AND i.width = " + UserImage.ORIGINAL_WIDTH)
+    Optional<ImageView> findOriginal(@Param("userId") Long userId, @Param("kind") UserImage.Kind kind);
+
+    @Modifying
+    @Query("DELETE FROM UserImage i WHERE i.user.id = :userId AND i.kind = :kind")
+    int deleteByUserIdAndKind(@Param("userId") Long userId, @Param("kind") UserImage.Kind kind);
+}
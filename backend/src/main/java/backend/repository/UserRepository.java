@@ -1,9 +1,17 @@
 package backend.repository;
 
+import backend.dto.CategoryResponseDTO;
+import backend.dto.FollowResponseDTO;
+import backend.dto.TagResponseDTO;
 import backend.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.Optional;
 
 @Repository
@@ -12,6 +20,54 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     Optional<User> findUserByUsername(String username);
 
+    @Query("SELECT u.avatarHash FROM User u WHERE u.id = :id")
+    Optional<String> findAvatarHashById(@Param("id") Long id);
+
+    @Query("SELECT u.bannerHash FROM User u WHERE u.id = :id")
+    Optional<String> findBannerHashById(@Param("id") Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Query("SELECT u.passwordChangedTime FROM User u WHERE u.username = :username")
+    Optional<Date> findPasswordChangedTimeByUsername(@Param("username") String username);
+
+    @Query(value = "SELECT new backend.dto.FollowResponseDTO(f.id, f.username) FROM User u JOIN u.followers f " +
+                   "WHERE u.id = :id ORDER BY f.id",
+           countQuery = "SELECT count(f) FROM User u JOIN u.followers f WHERE u.id = :id")
+    Page<FollowResponseDTO> findFollowers(@Param("id") Long id, Pageable pageable);
+
+    @Query(value = "SELECT new backend.dto.FollowResponseDTO(f.id, f.username) FROM User u JOIN u.following f " +
+                   "WHERE u.id = :id ORDER BY f.id",
+           countQuery = "SELECT count(f) FROM User u JOIN u.following f WHERE u.id = :id")
+    Page<FollowResponseDTO> findFollowing(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT count(f) > 0 FROM User u JOIN u.following f WHERE u.id = :id AND f.id = :targetId")
+    boolean isFollowing(@Param("id") Long id, @Param("targetId") Long targetId);
+
+    @Query(value = "SELECT new backend.dto.TagResponseDTO(t.id, t.title, t.description) FROM User u JOIN u.tags t " +
+                   "WHERE u.id = :id ORDER BY t.id",
+           countQuery = "SELECT count(t) FROM User u JOIN u.tags t WHERE u.id = :id")
+    Page<TagResponseDTO> findFollowedTags(@Param("id") Long id, Pageable pageable);
+
+    @Query(value = "SELECT new backend.dto.CategoryResponseDTO(c.id, c.title, c.description) FROM User u " +
+                   "JOIN u.categories c WHERE u.id = :id ORDER BY c.id",
+           countQuery = "SELECT count(c) FROM User u JOIN u.categories c WHERE u.id = :id")
+    Page<CategoryResponseDTO> findFollowedCategories(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT count(b) FROM Blog b WHERE b.user.id = :id")
+    long countPosts(@Param("id") Long id);
+
+    @Query("SELECT count(f) FROM User u JOIN u.followers f WHERE u.id = :id")
+    long countFollowers(@Param("id") Long id);
+
+    @Query("SELECT count(f) FROM User u JOIN u.following f WHERE u.id = :id")
+    long countFollowing(@Param("id") Long id);
+
+    // summed from the counter columns on blogs instead of loading every vote
+    @Query("SELECT coalesce(sum(b.upVotes), 0) FROM Blog b WHERE b.user.id = :id")
+    long sumReceivedUpVotes(@Param("id") Long id);
+
     Optional<User> findUserByEmail(String email);
 
     boolean existsByUsernameOrEmail(String username, String email);
@@ -0,0 +1,40 @@
+package backend.repository;
+
+import backend.entity.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Relative updates of the profile totals. Users without a stats row are skipped, the reconciliation job
+ * creates the row with the correct values.
+ */
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.postCount = s.postCount + :delta WHERE s.userId = :userId")
+    int adjustPostCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.commentCount = s.commentCount + :delta WHERE s.userId = :userId")
+    int adjustCommentCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.votesGiven = s.votesGiven + :delta WHERE s.userId = :userId")
+    int adjustVotesGiven(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.upVotesReceived = s.upVotesReceived + :delta WHERE s.userId = :userId")
+    int adjustUpVotesReceived(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.followerCount = s.followerCount + :delta WHERE s.userId = :userId")
+    int adjustFollowerCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.followingCount = s.followingCount + :delta WHERE s.userId = :userId")
+    int adjustFollowingCount(@Param("userId") Long userId, @Param("delta") int delta);
+}
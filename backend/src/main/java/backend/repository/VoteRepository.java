@@ -1,7 +1,12 @@
 package backend.repository;
 
+import backend.dto.VoteResponseDTO;
 import backend.entity.Vote;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +17,15 @@ public interface VoteRepository extends JpaRepository<Vote, Integer> {
 
     Optional<Vote> findVoteByBlog_IdAndUser_Id(Long blogId, Long userId);
 
+    @Query(value = "SELECT new backend.dto.VoteResponseDTO(v.id, v.upVote, b.id, c.id) FROM Vote v " +
+                   "LEFT JOIN v.blog b LEFT JOIN v.comment c WHERE v.user.id = :userId AND v.status = true " +
+                   "ORDER BY v.id DESC",
+           countQuery = "SELECT count(v) FROM Vote v WHERE v.user.id = :userId AND v.status = true")
+    Page<VoteResponseDTO> findActiveVotes(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = "SELECT new backend.dto.VoteResponseDTO(v.id, v.upVote, v.blog.id, c.id) FROM Vote v " +
+                   "LEFT JOIN v.comment c WHERE v.user.id = :userId AND v.blog.id = :blogId AND v.status = true ORDER BY v.id DESC",
+           countQuery = "SELECT count(v) FROM Vote v WHERE v.user.id = :userId AND v.blog.id = :blogId AND v.status = true")
+    Page<VoteResponseDTO> findActiveVotesOnBlog(@Param("userId") Long userId, @Param("blogId") Long blogId,
+                                                Pageable pageable);
 }
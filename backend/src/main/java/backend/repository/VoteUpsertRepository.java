@@ -0,0 +1,69 @@
+package backend.repository;
+
+import backend.util.HotScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * PostgreSQL only: toggles an up vote and moves every number that depends on it in one statement. The
+ * upsert relies on uk_votes_user_blog, so concurrent toggles by the same user serialize on the vote row
+ * instead of inserting duplicates.
+ */
+@Repository
+public class VoteUpsertRepository {
+
+    // a conflicting down vote is left alone, the DO UPDATE filter then returns no row and nothing moves
+    private static final String UPSERT_VOTE =
+            "WITH vote AS (" +
+            // a native insert takes a single sequence value, it never falls inside a range reserved by Hibernate
+            " INSERT INTO votes (id, user_id, blog_id, up_vote, status, created_time, updated_time)" +
+            " VALUES (nextval('votes_id_seq'), ?, ?, true, true, LOCALTIMESTAMP, LOCALTIMESTAMP)" +
+            " ON CONFLICT (user_id, blog_id) DO UPDATE SET status = NOT votes.status, updated_time = LOCALTIMESTAMP" +
+            " WHERE votes.up_vote" +
+            " RETURNING status" +
+            "), delta AS (" +
+            " SELECT CASE WHEN status THEN 1 ELSE -1 END AS d FROM vote" +
+            ")";
+
+    private static final String TOGGLE_BLOG_UP_VOTE = UPSERT_VOTE +
+            ", post AS (" +
+            " UPDATE blogs b SET up_votes = b.up_votes + delta.d," +
+            " hot_score = " + HotScore.sql("b.up_votes + delta.d - b.down_votes", "b.created_time") +
+            " FROM delta WHERE b.id = ? RETURNING b.user_id AS author_id, delta.d" +
+            "), stats AS (" +
+            // one statement for both users, a row can only be updated once per query
+            " UPDATE user_stats s SET" +
+            " votes_given = s.votes_given + CASE WHEN s.user_id = ? THEN post.d ELSE 0 END," +
+            " up_votes_received = s.up_votes_received + CASE WHEN s.user_id = post.author_id THEN post.d ELSE 0 END" +
+            " FROM post WHERE s.user_id IN (?, post.author_id) RETURNING s.user_id" +
+            ") SELECT coalesce((SELECT d FROM delta), 0)";
+
+    // the post's counters and the author's total are left to VoteCounterBuffer
+    private static final String TOGGLE_BLOG_UP_VOTE_DEFERRED = UPSERT_VOTE +
+            ", stats AS (" +
+            " UPDATE user_stats s SET votes_given = s.votes_given + delta.d FROM delta WHERE s.user_id = ? RETURNING s.user_id" +
+            ") SELECT coalesce((SELECT d FROM delta), 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    /**
+     * @return +1 if the vote is now active, -1 if it was withdrawn, 0 if nothing changed
+     * @throws org.springframework.dao.DataIntegrityViolationException if the post or the user does not exist
+     */
+    public int toggleBlogUpVote(Long userId, Long blogId) {
+        Integer delta = jdbcTemplate.queryForObject(TOGGLE_BLOG_UP_VOTE, Integer.class, userId, blogId, blogId, userId, userId);
+        return delta != null ? delta : 0;
+    }
+
+
+    /**
+     * Like {@link #toggleBlogUpVote} but only writes the vote and the voter's total.
+     */
+    public int toggleBlogUpVoteDeferred(Long userId, Long blogId) {
+        Integer delta = jdbcTemplate.queryForObject(TOGGLE_BLOG_UP_VOTE_DEFERRED, Integer.class, userId, blogId, userId);
+        return delta != null ? delta : 0;
+    }
+}
@@ -0,0 +1,353 @@
+package backend.search;
+
+import backend.entity.Blog;
+import backend.event.BlogCreatedEvent;
+import backend.projection.BlogTitleView;
+import backend.repository.BlogRepository;
+import backend.util.Utils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded Lucene index over post title, text, tags, categories and author, ranked with BM25 (the Lucene
+ * default). New posts are added after their transaction commits and are searchable right away through a
+ * near-real-time reader; commits to disk happen on a timer. The database stays the source of truth, the
+ * index can be rebuilt from it at any time.
+ *
+ * Each node keeps its own index and only sees the posts created through it directly. The rest, and posts
+ * created while the node was down, are read from the database every {@code meet.search.catch-up-interval-ms}.
+ * The time the catch-up has reached is stored with every commit.
+ */
+@Component
+@Log4j2
+public class BlogSearchIndex {
+
+    public static final String RELEVANCE = "relevance";
+
+    private static final String ID = "id";
+
+    private static final String[] FIELDS = {"title", "text", "tags", "categories", "author"};
+
+    private static final Map<String, Float> BOOSTS = Map.of("title", 3f, "tags", 2f, "categories", 2f,
+            "author", 2f, "text", 1f);
+
+    // best match first, newer posts first among equal scores
+    private static final Sort RANKING = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.LONG, true));
+
+    private static final int REBUILD_BATCH_SIZE = 200;
+
+    private static final String CAUGHT_UP = "caughtUp";
+
+    // posts are stamped before their transaction commits, a catch-up reads back this far to not miss them
+    private static final long CATCH_UP_OVERLAP_MS = 300000;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.search.index-dir}")
+    private String indexDir;
+
+    private Analyzer analyzer;
+
+    private Directory directory;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    // held exclusively by a rebuild, so nothing refreshes or commits the index while it is half built
+    private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+
+    private volatile long caughtUp;
+
+
+    @PostConstruct
+    public void open() throws IOException {
+        analyzer = new EnglishAnalyzer();
+        directory = FSDirectory.open(Paths.get(indexDir));
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        caughtUp = System.currentTimeMillis();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (CAUGHT_UP.equals(entry.getKey())) {
+                    caughtUp = Long.parseLong(entry.getValue());
+                }
+            }
+        }
+    }
+
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBlogCreated(BlogCreatedEvent event) {
+        try {
+            index(event.getBlogId(), event.getTitle(), event.getText(), event.getCategories(), event.getTags(),
+                    event.getAuthorName());
+            publish(false);
+        } catch (IOException e) {
+            // the post is saved either way, the next catch-up picks it up
+            log.error("Could not index post {}", event.getBlogId(), e);
+        }
+    }
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() throws IOException {
+        if (writer.getDocStats().numDocs == 0 && blogRepository.count() > 0) {
+            log.info("Search index is empty, rebuilding it from the database");
+            rebuild();
+        }
+    }
+
+
+    @Scheduled(initialDelayString = "${meet.search.commit-interval-ms:30000}",
+               fixedDelayString = "${meet.search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        publish(true);
+    }
+
+
+    /**
+     * Indexes the posts created since the last catch-up, whichever node created them.
+     */
+    @Scheduled(initialDelayString = "${meet.search.catch-up-interval-ms:60000}",
+               fixedDelayString = "${meet.search.catch-up-interval-ms:60000}")
+    public synchronized void catchUp() throws IOException {
+        long started = System.currentTimeMillis();
+        Date since = new Date(caughtUp - CATCH_UP_OVERLAP_MS);
+        int indexed = indexAll(after -> blogRepository.findByCreatedTimeGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                since, after, PageRequest.of(0, REBUILD_BATCH_SIZE)));
+        caughtUp = started;
+        publish(false);
+        log.debug("Search index caught up with {} posts", indexed);
+    }
+
+
+    /**
+     * Re-indexes every post. Searches keep the reader from before the rebuild until it is done; refreshes and
+     * commits are held back meanwhile, so posts added during the rebuild show up once it finishes.
+     *
+     * @return the number of posts indexed
+     */
+    public synchronized int rebuild() throws IOException {
+        long started = System.currentTimeMillis();
+        int indexed;
+        publishLock.writeLock().lock();
+        try {
+            writer.deleteAll();
+            indexed = indexAll(after -> blogRepository.findByIdGreaterThanOrderByIdAsc(after,
+                    PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            caughtUp = started;
+            writer.setLiveCommitData(Map.of(CAUGHT_UP, String.valueOf(caughtUp)).entrySet());
+            writer.commit();
+            searcherManager.maybeRefresh();
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+        log.info("Rebuilt search index with {} posts", indexed);
+        return indexed;
+    }
+
+
+    // indexes batches of posts in id order until one comes back empty
+    private int indexAll(Function<Long, List<Blog>> nextBatch) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        long lastId = 0;
+        int indexed = 0;
+        while (true) {
+            long after = lastId;
+            List<Blog> blogs = transaction.execute(status -> {
+                List<Blog> batch = nextBatch.apply(after);
+                if (batch.isEmpty()) {
+                    return batch;
+                }
+                List<Long> ids = batch.stream().map(Blog::getId).collect(Collectors.toList());
+                Map<Long, List<String>> categories = groupTitles(blogRepository.findCategoryTitlesByBlogIds(ids));
+                Map<Long, List<String>> tags = groupTitles(blogRepository.findTagTitlesByBlogIds(ids));
+                for (Blog blog : batch) {
+                    try {
+                        index(blog.getId(), blog.getTitle(), Utils.htmlToPlainText(blog.getContent()),
+                                categories.getOrDefault(blog.getId(), List.of()),
+                                tags.getOrDefault(blog.getId(), List.of()), blog.getUser().getUsername());
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return batch;
+            });
+            if (blogs.isEmpty()) {
+                return indexed;
+            }
+            indexed += blogs.size();
+            lastId = blogs.get(blogs.size() - 1).getId();
+        }
+    }
+
+
+    // makes indexed posts searchable, and durable if commit is set, unless a rebuild is under way
+    private void publish(boolean commit) throws IOException {
+        if (!publishLock.readLock().tryLock()) {
+            return;
+        }
+        try {
+            if (commit && writer.hasUncommittedChanges()) {
+                writer.setLiveCommitData(Map.of(CAUGHT_UP, String.valueOf(caughtUp)).entrySet());
+                writer.commit();
+            } else if (!commit) {
+                searcherManager.maybeRefresh();
+            }
+        } finally {
+            publishLock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Returns one page of matching post ids in rank order.
+     *
+     * @throws IllegalArgumentException if the query can not be parsed
+     */
+    public Hits search(String text, int offset, int limit) throws IOException {
+        Query query = parse(text);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopFieldDocs top = searcher.search(query, offset + limit, RANKING, true);
+            long total = top.totalHits.relation == TotalHits.Relation.EQUAL_TO ? top.totalHits.value : searcher.count(query);
+            return new Hits(toHits(top.scoreDocs, offset), total);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+
+    // keyset variant of search, continues after the given score and post id
+    public Hits searchAfter(String text, float score, long blogId, int limit) throws IOException {
+        Query query = parse(text);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            // ids are unique, so the doc number only matters for the cursor post itself, which must sort before
+            FieldDoc after = new FieldDoc(searcher.getIndexReader().maxDoc() - 1, score, new Object[]{score, blogId});
+            TopFieldDocs top = searcher.searchAfter(after, query, limit, RANKING, true);
+            return new Hits(toHits(top.scoreDocs, 0), top.totalHits.value);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+
+    private void index(Long blogId, String title, String text, List<String> categories, List<String> tags,
+                       String author) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(blogId), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, blogId));
+        document.add(new TextField("title", Objects.toString(title, ""), Field.Store.NO));
+        document.add(new TextField("text", Objects.toString(text, ""), Field.Store.NO));
+        document.add(new TextField("categories", String.join(" ", categories), Field.Store.NO));
+        document.add(new TextField("tags", String.join(" ", tags), Field.Store.NO));
+        document.add(new TextField("author", Objects.toString(author, ""), Field.Store.NO));
+        writer.updateDocument(new Term(ID, String.valueOf(blogId)), document);
+    }
+
+
+    private Query parse(String text) {
+        // no term lists every post, newest first
+        if (text == null || text.isBlank()) {
+            return new MatchAllDocsQuery();
+        }
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(FIELDS, analyzer, BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            // user input is matched as plain words, never as query syntax
+            return parser.parse(QueryParser.escape(text));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid search term", e);
+        }
+    }
+
+
+    private List<Hit> toHits(ScoreDoc[] scoreDocs, int offset) {
+        List<Hit> hits = new ArrayList<>();
+        for (int i = offset; i < scoreDocs.length; i++) {
+            FieldDoc doc = (FieldDoc) scoreDocs[i];
+            hits.add(new Hit((Long) doc.fields[1], doc.score));
+        }
+        return hits;
+    }
+
+
+    private Map<Long, List<String>> groupTitles(List<BlogTitleView> rows) {
+        return rows.stream().collect(Collectors.groupingBy(BlogTitleView::getBlogId,
+                Collectors.mapping(BlogTitleView::getTitle, Collectors.toList())));
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    public static class Hit {
+
+        private Long blogId;
+
+        private float score;
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    public static class Hits {
+
+        private List<Hit> hits;
+
+        private long total;
+    }
+}
@@ -0,0 +1,234 @@
+package backend.search;
+
+import backend.dto.SuggestionDTO;
+import backend.event.BlogCreatedEvent;
+import backend.event.UserCreatedEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index for search box autocompletion over tag and category titles, usernames and the
+ * most popular post titles. Every word of an entry is a key in a sorted map, so a prefix lookup is a range
+ * scan that never touches the database. Writes update the index in place; a periodic rebuild refreshes
+ * popularity and picks up changes made on other nodes. Between rebuilds at most {@value #MAX_NEW_POSTS} new
+ * posts are added, so the post entries stay bounded however fast posts are created.
+ */
+@Component
+@Log4j2
+public class SuggestIndex {
+
+    public static final String POST = "POST";
+
+    public static final String TAG = "TAG";
+
+    public static final String CATEGORY = "CATEGORY";
+
+    public static final String USER = "USER";
+
+    // only the most popular posts are offered, everything else is left to full text search
+    private static final int MAX_POSTS = 5000;
+
+    // posts created since the last rebuild, the rebuild decides whether they stay
+    private static final int MAX_NEW_POSTS = 500;
+
+    // bounds the work for one or two letter prefixes, matches past this are not ranked
+    private static final int MAX_SCANNED = 5000;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Index index = new Index();
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+
+    @Scheduled(initialDelayString = "${meet.suggest.rebuild-interval-ms:600000}",
+               fixedDelayString = "${meet.suggest.rebuild-interval-ms:600000}")
+    @Transactional
+    public void rebuild() {
+        Index next = new Index();
+        jdbcTemplate.query("SELECT t.id, t.title, count(bt.blog_id) FROM tags t " +
+                        "LEFT JOIN blog_tags bt ON bt.tag_id = t.id GROUP BY t.id, t.title",
+                rs -> { next.put(TAG, rs.getLong(1), rs.getString(2), rs.getInt(3)); });
+        jdbcTemplate.query("SELECT c.id, c.title, count(bc.blog_id) FROM categories c " +
+                        "LEFT JOIN blog_categories bc ON bc.category_id = c.id GROUP BY c.id, c.title",
+                rs -> { next.put(CATEGORY, rs.getLong(1), rs.getString(2), rs.getInt(3)); });
+        jdbcTemplate.query("SELECT u.id, u.username, count(b.id) FROM users u " +
+                        "LEFT JOIN blogs b ON b.user_id = u.id GROUP BY u.id, u.username",
+                rs -> { next.put(USER, rs.getLong(1), rs.getString(2), rs.getInt(3)); });
+        jdbcTemplate.query("SELECT id, title, up_votes + comment_count FROM blogs " +
+                        "ORDER BY up_votes + comment_count DESC, id DESC LIMIT " + MAX_POSTS,
+                rs -> { next.put(POST, rs.getLong(1), rs.getString(2), rs.getInt(3)); });
+        index = next;
+        log.debug("Rebuilt suggestion index with {} entries", next.entries.size());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBlogCreated(BlogCreatedEvent event) {
+        Index current = index;
+        if (current.newPosts.incrementAndGet() <= MAX_NEW_POSTS) {
+            current.put(POST, event.getBlogId(), event.getTitle(), 0);
+        }
+        current.bump(USER, event.getAuthorId(), event.getAuthorName());
+        // catalogs are keyed by title here, ids are only known to the rebuild
+        event.getTags().forEach(title -> current.bumpByText(TAG, title));
+        event.getCategories().forEach(title -> current.bumpByText(CATEGORY, title));
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserCreated(UserCreatedEvent event) {
+        index.put(USER, event.getUserId(), event.getUsername(), 0);
+    }
+
+
+    public void add(String type, Long id, String text) {
+        index.put(type, id, text, 0);
+    }
+
+
+    /**
+     * Returns up to {@code limit} entries having a word that starts with {@code prefix}, most popular first.
+     * A prefix of several words matches entries containing it as a phrase.
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // min-heap of the best entries seen so far
+        PriorityQueue<Entry> best = new PriorityQueue<>(Comparator.comparingInt(Entry::popularity));
+        Set<Entry> seen = new HashSet<>();
+        String firstWord = key.split(" ")[0];
+        boolean phrase = !firstWord.equals(key);
+        int scanned = 0;
+        for (Entry entry : index.words.subMap(firstWord, firstWord + Character.MAX_VALUE).values()) {
+            if (++scanned > MAX_SCANNED) {
+                break;
+            }
+            if (!seen.add(entry) || (phrase && !entry.normalized.contains(key))) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(entry);
+            } else if (entry.popularity() > best.peek().popularity()) {
+                best.poll();
+                best.add(entry);
+            }
+        }
+
+        List<Entry> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingInt(Entry::popularity).reversed().thenComparing(entry -> entry.text));
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        for (Entry entry : ranked) {
+            suggestions.add(new SuggestionDTO(entry.type, entry.id, entry.text));
+        }
+        return suggestions;
+    }
+
+
+    // single spaces between words, so a phrase matches however the title or the query was spaced
+    private static String normalize(String text) {
+        return text == null ? "" : WHITESPACE.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+
+    private static class Entry {
+
+        private final String type;
+
+        private final Long id;
+
+        private final String text;
+
+        private final String normalized;
+
+        private final AtomicInteger popularity;
+
+        Entry(String type, Long id, String text, int popularity) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.normalized = normalize(text);
+            this.popularity = new AtomicInteger(popularity);
+        }
+
+        int popularity() {
+            return popularity.get();
+        }
+    }
+
+
+    private static class Index {
+
+        // "word\0type:id" -> entry, one key per word so that inner words match too
+        private final ConcurrentSkipListMap<String, Entry> words = new ConcurrentSkipListMap<>();
+
+        // "type:id" -> entry
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        // "type:text" -> entry, for catalog entries that are referenced by title
+        private final Map<String, Entry> byText = new ConcurrentHashMap<>();
+
+        // posts added by events since this index was built
+        private final AtomicInteger newPosts = new AtomicInteger();
+
+        void put(String type, Long id, String text, int popularity) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            Entry entry = new Entry(type, id, text, popularity);
+            Entry previous = entries.put(type + ":" + id, entry);
+            if (previous != null) {
+                removeWords(previous);
+            }
+            byText.put(type + ":" + entry.normalized, entry);
+            for (String word : entry.normalized.split(" ")) {
+                words.put(word + '\0' + type + ':' + id, entry);
+            }
+        }
+
+        void bump(String type, Long id, String text) {
+            Entry entry = entries.get(type + ":" + id);
+            if (entry != null) {
+                entry.popularity.incrementAndGet();
+            } else {
+                put(type, id, text, 1);
+            }
+        }
+
+        void bumpByText(String type, String text) {
+            Entry entry = byText.get(type + ":" + normalize(text));
+            if (entry != null) {
+                entry.popularity.incrementAndGet();
+            }
+        }
+
+        private void removeWords(Entry entry) {
+            for (String word : entry.normalized.split(" ")) {
+                words.remove(word + '\0' + entry.type + ':' + entry.id, entry);
+            }
+        }
+    }
+}
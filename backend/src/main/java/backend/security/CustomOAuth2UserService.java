@@ -2,28 +2,33 @@ package backend.security;
 
 import backend.entity.Role;
 import backend.entity.User;
+import backend.entity.UserStats;
+import backend.event.AvatarImportEvent;
+import backend.event.UserCreatedEvent;
 import backend.repository.RoleRepository;
 import backend.repository.UserRepository;
-import backend.util.Utils;
+import backend.repository.UserStatsRepository;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
+import javax.annotation.PostConstruct;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
-
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     @Autowired
@@ -32,56 +37,77 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private GitHubClient gitHubClient;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private HttpComponentsClientHttpRequestFactory outboundRequestFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // the user info request made by the superclass shares the pooled client and its timeouts
+    @PostConstruct
+    public void init() {
+        RestTemplate restTemplate = new RestTemplate(outboundRequestFactory);
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        setRestOperations(restTemplate);
+    }
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
         OAuth2User oauth2User = super.loadUser(userRequest);
 
         String accessToken = userRequest.getAccessToken().getTokenValue();
-        String emailApiUrl = "https://api.github.com/user/emails";
-
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + accessToken);
-
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        ResponseEntity<List<GitHubEmail>> response = restTemplate.exchange(emailApiUrl, HttpMethod.GET, entity,
-                                                                            new ParameterizedTypeReference<List<GitHubEmail>>() {});
-
-        List<GitHubEmail> emails = response.getBody();
-        User user;
-        for (GitHubEmail email : emails) {
-            if (email.isPrimary() && email.getEmail() != null) {
-                Optional<User> existingUser = userRepository.findUserByEmail(email.getEmail());
-
-                if (existingUser.isPresent()) {
-                    user = existingUser.get();
-                    user.setUsername(oauth2User.getAttribute("login"));
-                    userRepository.save(user);
-                    break;
-                } else {
-                    user = new User();
-                    Role roles = roleRepository.findByName("USER");
-                    user.setRoles(Collections.singletonList(roles));
-                    user.setEmail(email.getEmail());
-                    user.setUsername(oauth2User.getAttribute("login"));
-                    user.setAvatarName(Utils.getFileNameFromUrl(oauth2User.getAttribute("avatar_url")));
-                    try {
-                        user.setAvatarType(Utils.fetchImageType(oauth2User.getAttribute("avatar_url")));
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                    try {
-                        user.setAvatarBlob(Utils.fetchImageAsByteArray(oauth2User.getAttribute("avatar_url")));
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                    user.setBio(oauth2User.getAttribute("bio"));
-                    user.setCreatedTime(new Date());
-                    userRepository.save(user);
+        List<GitHubEmail> emails;
+        try {
+            emails = gitHubClient.fetchEmails(accessToken);
+        } catch (CallNotPermittedException | RestClientException e) {
+            throw new OAuth2AuthenticationException(new OAuth2Error("github_unavailable"), e.getMessage(), e);
+        }
+        // the HTTP calls are done, only the rows are written in the transaction
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (GitHubEmail email : emails) {
+                if (email.isPrimary() && email.getEmail() != null) {
+                    saveUser(oauth2User, email.getEmail());
                     break;
                 }
             }
-        }
+        });
         return oauth2User;
     }
+
+
+    private void saveUser(OAuth2User oauth2User, String email) {
+        Optional<User> existingUser = userRepository.findUserByEmail(email);
+        if (existingUser.isPresent()) {
+            User user = existingUser.get();
+            user.setUsername(oauth2User.getAttribute("login"));
+            userRepository.save(user);
+            return;
+        }
+
+        User user = new User();
+        Role roles = roleRepository.findByName("USER");
+        user.setRoles(Collections.singletonList(roles));
+        user.setEmail(email);
+        user.setUsername(oauth2User.getAttribute("login"));
+        user.setBio(oauth2User.getAttribute("bio"));
+        user.setCreatedTime(new Date());
+        // variants reference the user, so it needs an id before the avatar is applied
+        user = userRepository.save(user);
+        userStatsRepository.save(new UserStats(user.getId()));
+        String avatarUrl = oauth2User.getAttribute("avatar_url");
+        if (avatarUrl != null) {
+            // downloaded by AvatarImportService once this commits, the redirect does not wait for it
+            eventPublisher.publishEvent(new AvatarImportEvent(user.getId(), avatarUrl));
+        }
+        eventPublisher.publishEvent(new UserCreatedEvent(user.getId(), user.getUsername()));
+    }
 }
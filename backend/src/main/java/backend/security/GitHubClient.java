@@ -0,0 +1,73 @@
+package backend.security;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Calls made to GitHub on behalf of a login. Every call goes through the shared pooled client and its
+ * timeouts, API calls and avatar downloads each behind their own circuit breaker, so an outage fails the
+ * calls at once instead of tying up threads.
+ */
+@Component
+public class GitHubClient {
+
+    public static final String API_BREAKER = "github-api";
+
+    public static final String AVATAR_BREAKER = "github-avatars";
+
+    @Autowired
+    private RestTemplate outboundRestTemplate;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Value("${meet.github.api-url:https://api.github.com}")
+    private String apiUrl;
+
+
+    /**
+     * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException if the breaker is open
+     */
+    public List<GitHubEmail> fetchEmails(String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        return breaker(API_BREAKER).executeSupplier(() -> outboundRestTemplate.exchange(apiUrl + "/user/emails",
+                HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<List<GitHubEmail>>() {})
+                .getBody());
+    }
+
+
+    /**
+     * @throws IllegalArgumentException if the image is larger than maxBytes
+     * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException if the breaker is open
+     */
+    public byte[] fetchAvatar(String url, long maxBytes) {
+        return breaker(AVATAR_BREAKER).executeSupplier(() -> outboundRestTemplate.execute(url, HttpMethod.GET, null,
+                response -> {
+                    try (InputStream in = response.getBody()) {
+                        // one byte over the limit is enough to tell, the rest is never read
+                        byte[] data = in.readNBytes((int) Math.min(maxBytes + 1, Integer.MAX_VALUE));
+                        if (data.length > maxBytes) {
+                            throw new IllegalArgumentException("Avatar exceeds " + maxBytes + " bytes");
+                        }
+                        return data;
+                    }
+                }));
+    }
+
+
+    private CircuitBreaker breaker(String name) {
+        return circuitBreakerRegistry.circuitBreaker(name);
+    }
+}
@@ -20,17 +20,13 @@ import java.io.IOException;
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
-    private JWTGenerator jwtGenerator;
-
-    @Autowired
-    private CustomUserDetailService customUserDetailService;
+    private JWTPrincipalCache jwtPrincipalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String token = getTokenFromRequest(request);
-        if (StringUtils.hasText(token) && jwtGenerator.validateToken(token)) {
-            String username = jwtGenerator.getUsernameFromToken(token);
-            UserDetails userDetails = customUserDetailService.loadUserByUsername(username);
+        if (StringUtils.hasText(token)) {
+            UserDetails userDetails = jwtPrincipalCache.resolve(token);
             UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
             usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -6,13 +6,17 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
+import java.util.stream.Collectors;
 
 @Component
 public class JWTGenerator {
 
+    public static final String ROLES_CLAIM = "roles";
+
     public String generateToken(Authentication authentication) {
         String username = authentication.getName();
         Date now = new Date();
@@ -20,12 +24,27 @@ public class JWTGenerator {
 
         return Jwts.builder()
                 .setSubject(username)
+                .claim(ROLES_CLAIM, authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority).collect(Collectors.toList()))
                 .setIssuedAt(now)
                 .setExpiration(expiration)
                 .signWith(SignatureAlgorithm.HS512, Constants.JWT_SECRET)
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns its claims in one pass.
+     *
+     * @throws AuthenticationCredentialsNotFoundException if the token is expired or incorrect
+     */
+    public Claims parseToken(String token) {
+        try {
+            return Jwts.parser().setSigningKey(Constants.JWT_SECRET).parseClaimsJws(token).getBody();
+        } catch (Exception e) {
+            throw new AuthenticationCredentialsNotFoundException("JWT token expired or incorrect");
+        }
+    }
+
     public String getUsernameFromToken(String token) {
         Claims claims = Jwts.parser().setSigningKey(Constants.JWT_SECRET).parseClaimsJws(token).getBody();
         return claims.getSubject();
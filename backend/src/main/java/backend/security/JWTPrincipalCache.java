@@ -0,0 +1,128 @@
+package backend.security;
+
+import backend.event.PasswordChangedEvent;
+import backend.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves bearer tokens to principals. A token is verified and parsed once, the principal is built from
+ * its subject and roles claims and kept for {@code meet.auth.principal-cache-ttl-ms}, so repeated requests
+ * with the same token skip both the signature check and the database.
+ *
+ * Resetting a password revokes the user's earlier tokens. The time of the reset is stored on the user and
+ * checked against the token's iat whenever a token is loaded, so every node enforces it and a restart
+ * does not forget it. The cache only reads through: the node that handled the reset drops the user's
+ * entries once it commits, other nodes accept an already cached token for at most the TTL.
+ */
+@Component
+public class JWTPrincipalCache {
+
+    @Autowired
+    private JWTGenerator jwtGenerator;
+
+    @Autowired
+    private CustomUserDetailService customUserDetailService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${meet.auth.principal-cache-size:10000}")
+    private long maximumSize;
+
+    @Value("${meet.auth.principal-cache-ttl-ms:300000}")
+    private long ttlMs;
+
+    // keyed by the compact token, an identical string carries an identical, already verified signature
+    private Cache<String, CachedPrincipal> principals;
+
+
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+
+    /**
+     * @throws AuthenticationCredentialsNotFoundException if the token is invalid, expired or revoked
+     */
+    public UserDetails resolve(String token) {
+        CachedPrincipal principal = principals.get(token, this::load);
+        if (principal.getExpiresAt() <= System.currentTimeMillis()) {
+            principals.invalidate(token);
+            throw new AuthenticationCredentialsNotFoundException("JWT token expired or incorrect");
+        }
+        return principal.getUserDetails();
+    }
+
+
+    // the new passwordChangedTime is committed, the next request with an old token reloads and fails
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPasswordChanged(PasswordChangedEvent event) {
+        principals.asMap().values().removeIf(p -> p.getUserDetails().getUsername().equals(event.getUsername()));
+    }
+
+
+    private CachedPrincipal load(String token) {
+        Claims claims = jwtGenerator.parseToken(token);
+        if (isRevoked(claims)) {
+            throw new AuthenticationCredentialsNotFoundException("JWT token expired or incorrect");
+        }
+        UserDetails userDetails;
+        List<?> roles = claims.get(JWTGenerator.ROLES_CLAIM, List.class);
+        if (roles != null) {
+            Collection<GrantedAuthority> authorities = roles.stream()
+                    .map(role -> new SimpleGrantedAuthority(role.toString()))
+                    .collect(Collectors.toList());
+            userDetails = new User(claims.getSubject(), "", authorities);
+        } else {
+            // issued before roles were embedded
+            userDetails = customUserDetailService.loadUserByUsername(claims.getSubject());
+        }
+        return new CachedPrincipal(userDetails, claims.getExpiration().getTime());
+    }
+
+
+    private boolean isRevoked(Claims claims) {
+        Optional<Date> changed = userRepository.findPasswordChangedTimeByUsername(claims.getSubject());
+        if (changed.isEmpty()) {
+            return false;
+        }
+        long before = changed.get().getTime();
+        // iat has second precision, tokens issued in the second of the reset stay valid
+        return claims.getIssuedAt().getTime() < before - before % 1000;
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedPrincipal {
+
+        private UserDetails userDetails;
+
+        private long expiresAt;
+    }
+}
@@ -1,12 +1,17 @@
 package backend.security;
 
+import backend.config.AsyncConfig;
 import backend.dto.LoginResponseDTO;
 import backend.entity.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -47,12 +52,14 @@ public class SecurityConfig {
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             .and()
             .authorizeRequests()
+            .antMatchers("/api/v1/admin/**", "/actuator/**").hasAuthority("ADMIN")
             .antMatchers(
                     "/api/v1/health",
                     "/api/v1/register",
                     "/api/v1/oauth-register",
                     "/api/v1/login",
                     "/api/v1/profile",
+                    "/api/v1/profile/header",
                     "/api/v1/reset-password",
                     "/api/v1/categories",
                     "/api/v1/categories/**",
@@ -60,6 +67,18 @@ public class SecurityConfig {
                     "/api/v1/tags/**",
                     "/api/v1/posts",
                     "/api/v1/posts/**",
+                    "/api/v1/users/search",
+                    "/api/v1/comments/*/replies",
+                    "/api/v1/suggest",
+                    "/api/v1/users/*/avatar",
+                    "/api/v1/users/*/banner",
+                    "/api/v1/users/*/posts",
+                    "/api/v1/users/*/votes",
+                    "/api/v1/users/*/followers",
+                    "/api/v1/users/*/following",
+                    "/api/v1/users/*/following/*",
+                    "/api/v1/users/*/tags",
+                    "/api/v1/users/*/categories",
                     "/swagger-ui/**",
                     "/v3/api-docs/**",
                     "/swagger-resources/**",
@@ -82,9 +101,12 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // raising the strength re-hashes stored passwords on the next successful login, see CustomUserDetailService
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Qualifier(AsyncConfig.PASSWORD_HASHING_EXECUTOR) ThreadPoolTaskExecutor executor,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${meet.auth.bcrypt-strength:10}") int strength) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), executor, meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,55 @@
+package backend.service;
+
+import backend.config.AsyncConfig;
+import backend.event.AvatarImportEvent;
+import backend.repository.UserRepository;
+import backend.security.GitHubClient;
+import backend.util.Utils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Downloads the avatar of a user who signed up through OAuth, off the login request. A failed download
+ * only costs the user their remote avatar, they can upload one themselves.
+ */
+@Service
+@Log4j2
+public class AvatarImportService {
+
+    @Autowired
+    private GitHubClient gitHubClient;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.images.max-upload-size:10MB}")
+    private DataSize maxSize;
+
+
+    @Async(AsyncConfig.AVATAR_IMPORT_EXECUTOR)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvatarImport(AvatarImportEvent event) {
+        try {
+            byte[] avatar = gitHubClient.fetchAvatar(event.getAvatarUrl(), maxSize.toBytes());
+            ImageService.RenderedImages images = imageService.renderAvatar(imageService.sanitize(avatar));
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    userRepository.findUserById(event.getUserId()).ifPresent(user ->
+                            imageService.applyAvatar(user, Utils.getFileNameFromUrl(event.getAvatarUrl()), images)));
+        } catch (Exception e) {
+            log.warn("Could not import the avatar of user {}: {}", event.getUserId(), e.getMessage());
+        }
+    }
+}
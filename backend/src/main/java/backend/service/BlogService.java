@@ -1,19 +1,32 @@
 package backend.service;
 
+import backend.config.DatabasePlatform;
 import backend.dto.*;
 import backend.entity.*;
+import backend.projection.BlogSummary;
+import backend.projection.BlogTitleView;
+import backend.event.BlogCreatedEvent;
 import backend.repository.*;
+import backend.search.BlogSearchIndex;
 import backend.specification.BlogSpecification;
+import backend.util.Cursor;
+import backend.util.HotScore;
 import backend.util.Utils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,34 +50,35 @@ public class BlogService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private UserStatsRepository userStatsRepository;
 
-    public boolean createCategory(CategoryDTO categoryDTO) {
-        Category category = new Category();
-        category.setTitle(categoryDTO.getTitle());
-        category.setDescription(categoryDTO.getDescription());
-        category.setCreatedTime(new Date());
-        categoryRepository.save(category);
-        return true;
-    }
+    @Autowired
+    private VoteUpsertRepository voteUpsertRepository;
 
+    @Autowired
+    private DatabasePlatform databasePlatform;
 
-    public List<CategoryResponseDTO> getCategories() {
-        List<Category> categories = categoryRepository.findAll();
-        if (categories.isEmpty()) {
-            return new ArrayList<>();
-        }
-        List<CategoryResponseDTO> response = new ArrayList<>();
-        for (Category category : categories) {
-            CategoryResponseDTO responseDTO = new CategoryResponseDTO();
-            responseDTO.setId(category.getId());
-            responseDTO.setTitle(category.getTitle());
-            responseDTO.setDescription(category.getDescription());
-            response.add(responseDTO);
-        }
-        return response;
-    }
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private BlogSearchIndex blogSearchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FuzzySearchRepository fuzzySearchRepository;
+
+    @Autowired
+    private TimelineRepository timelineRepository;
 
 
+    @Transactional
     public boolean followACategory(Integer categoryId, Integer userId) {
         Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
         if (optionalUser.isEmpty()) {
@@ -91,6 +105,7 @@ public class BlogService {
     }
 
 
+    @Transactional
     public boolean unFollowACategory(Integer categoryId, Integer userId) {
         Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
         if (optionalUser.isEmpty()) {
@@ -106,41 +121,16 @@ public class BlogService {
         Category category = optionalCategory.get();
         if (user.getCategories().contains(category)) {
             user.getCategories().remove(category);
-            userRepository.save(user);
+            // flushed so the feed clean up no longer sees the follow
+            userRepository.saveAndFlush(user);
+            timelineRepository.deleteUnfollowedCategory(user.getId(), category.getId());
             return true;
         }
         return false;
     }
 
 
-    public boolean createTag(TagDTO tagDTO) {
-        Tag tag = new Tag();
-        tag.setTitle(tagDTO.getTitle());
-        tag.setDescription(tagDTO.getDescription());
-        tag.setCreatedTime(new Date());
-        tagRepository.save(tag);
-        return true;
-    }
-
-
-    // TODO:SET users
-    public List<TagResponseDTO> getTags() {
-        List<Tag> tags = tagRepository.findAll();
-        if (tags.isEmpty()) {
-            return new ArrayList<>();
-        }
-        List<TagResponseDTO> response = new ArrayList<>();
-        for (Tag tag : tags) {
-            TagResponseDTO tagResponseDTO = new TagResponseDTO();
-            tagResponseDTO.setId(tag.getId());
-            tagResponseDTO.setTitle(tag.getTitle());
-            tagResponseDTO.setDescription(tag.getDescription());
-            response.add(tagResponseDTO);
-        }
-        return response;
-    }
-
-
+    @Transactional
     public boolean followATag(Integer tagId, Integer userId) {
         Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
         if (optionalUser.isEmpty()) {
@@ -167,6 +157,7 @@ public class BlogService {
     }
 
 
+    @Transactional
     public boolean unFollowATag(Integer tagId, Integer userId) {
         Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
         if (optionalUser.isEmpty()) {
@@ -182,7 +173,9 @@ public class BlogService {
         Tag tag = optionalTag.get();
         if (user.getTags().contains(tag)) {
             user.getTags().remove(tag);
-            userRepository.save(user);
+            // flushed so the feed clean up no longer sees the follow
+            userRepository.saveAndFlush(user);
+            timelineRepository.deleteUnfollowedTag(user.getId(), tag.getId());
             return true;
         }
         return false;
@@ -194,64 +187,169 @@ public class BlogService {
         Blog blog = new Blog();
         blog.setTitle(blogDTO.getTitle());
         blog.setContent(blogDTO.getContent());
+        Utils.applyContentSummary(blog);
 
         User user = userRepository.findUserByUsername(blogDTO.getAuthorName()).orElseThrow(() -> new RuntimeException("User not found"));
         blog.setUser(user);
 
-        // find and set categories
-        List<Category> categories = new ArrayList<>();
-        for (String title : blogDTO.getCategories()) {
-            Category category = categoryRepository.findByTitle(title);
-            categories.add(category);
-        }
-        blog.setCategories(categories);
-
-        // find and set tags
-        List<Tag> tags = new ArrayList<>();
-        for (String title : blogDTO.getTags()) {
-            Tag tag = tagRepository.findByTitle(title);
-            tags.add(tag);
-        }
-        blog.setTags(tags);
+        // only references are attached, the category and tag rows are never loaded
+        blog.setCategories(resolveCategories(blogDTO.getCategories()));
+        blog.setTags(resolveTags(blogDTO.getTags()));
 
         blog.setCreatedTime(new Date());
         blog.setUpdatedTime(new Date());
         blogRepository.save(blog);
+        userStatsRepository.adjustPostCount(user.getId(), 1);
+
+        eventPublisher.publishEvent(new BlogCreatedEvent(blog.getId(), user.getId(), user.getUsername(),
+                blog.getTitle(), Utils.htmlToPlainText(blog.getContent()), distinct(blogDTO.getCategories()),
+                distinct(blogDTO.getTags()), blog.getCreatedTime()));
         return true;
     }
 
 
     @Transactional
-    public Page<BlogListResponseDTO> getAllBlogs(Pageable pageable, String category, String tag, boolean sortByVotes) {
-        if (sortByVotes) {
-            Page<Blog> blogs = blogRepository.findAllOrderByVotes(pageable);
-            return blogs.map(this::convertBlogToDTO);
-        } else {
-            Specification<Blog> specification = Specification.where((root, query, criteriaBuilder) -> criteriaBuilder.conjunction());
-            if (category != null && !category.isEmpty()) {
-                specification = specification.and(BlogSpecification.hasCategory(category));
-            }
-            if (tag != null && !tag.isEmpty()) {
-                specification = specification.and(BlogSpecification.hasTag(tag));
+    public Page<BlogListResponseDTO> getAllBlogs(Pageable pageable, String category, String tag) {
+        Page<BlogSummary> blogs = blogRepository.findSummaries(filterSpecification(category, tag), pageable);
+        return convertSummariesToDTOs(blogs);
+    }
+
+
+    @Transactional
+    public Page<BlogListResponseDTO> getUserBlogs(Long userId, Pageable pageable) {
+        return convertSummariesToDTOs(blogRepository.findSummaries(BlogSpecification.hasAuthor(userId), pageable));
+    }
+
+
+    // keyset variant of getAllBlogs, skips the count query and never scans past the cursor
+    @Transactional
+    public SliceResponseDTO<BlogListResponseDTO> getBlogSlice(String after, int size, String category, String tag,
+                                                              String sortBy, Sort.Direction direction) {
+        return findSlice(filterSpecification(category, tag), after, size, sortBy, direction);
+    }
+
+
+    // ranked by the search index, only the matched page is read from the database
+    @Transactional
+    public Page<BlogListResponseDTO> searchBlogs(Pageable pageable, String searchTerm) throws IOException {
+        BlogSearchIndex.Hits hits = blogSearchIndex.search(searchTerm, (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(hydrate(blogIds(hits.getHits())), pageable, hits.getTotal());
+    }
+
+
+    // typo tolerant match on title and author name, ranked by trigram similarity
+    @Transactional
+    public Page<BlogListResponseDTO> fuzzySearchBlogs(Pageable pageable, String searchTerm, double threshold) {
+        Page<Long> ids = fuzzySearchRepository.findBlogIds(searchTerm, threshold, pageable);
+        return new PageImpl<>(hydrate(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+
+    @Transactional
+    public SliceResponseDTO<BlogListResponseDTO> searchBlogSlice(String after, int size, String searchTerm)
+            throws IOException {
+        BlogSearchIndex.Hits hits;
+        if (after != null && !after.isEmpty()) {
+            Cursor cursor = Cursor.decode(after);
+            if (!BlogSearchIndex.RELEVANCE.equals(cursor.getSortBy())) {
+                throw new IllegalArgumentException("Cursor does not match search");
             }
-            Page<Blog> blogs = blogRepository.findAll(specification, pageable);
-            return blogs.map(this::convertBlogToDTO);
+            hits = blogSearchIndex.searchAfter(searchTerm, Float.parseFloat(cursor.getValue()), cursor.getId(), size + 1);
+        } else {
+            hits = blogSearchIndex.search(searchTerm, 0, size + 1);
         }
+
+        List<BlogSearchIndex.Hit> page = hits.getHits();
+        boolean hasNext = page.size() > size;
+        if (hasNext) {
+            page = page.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            BlogSearchIndex.Hit last = page.get(page.size() - 1);
+            nextCursor = new Cursor(BlogSearchIndex.RELEVANCE, String.valueOf(last.getScore()), last.getBlogId()).encode();
+        }
+        List<BlogListResponseDTO> content = hydrate(blogIds(page));
+        return new SliceResponseDTO<>(content, content.size(), hasNext, nextCursor);
     }
 
 
     @Transactional
-    public Page<BlogListResponseDTO> searchBlogs(Pageable pageable, String searchTerm) {
-        Specification<Blog> specification = Specification.where(null);
+    public List<BlogListResponseDTO> getBlogsByIds(List<Long> ids) {
+        return hydrate(ids);
+    }
 
-        if (searchTerm != null && !searchTerm.isEmpty()) {
-            specification =
-                    specification.or(BlogSpecification.containsTitle(searchTerm)).
-                            or(BlogSpecification.hasAuthor(searchTerm));
+
+    private List<Long> blogIds(List<BlogSearchIndex.Hit> hits) {
+        return hits.stream().map(BlogSearchIndex.Hit::getBlogId).collect(Collectors.toList());
+    }
+
+
+    // loads summaries for ranked ids and keeps their order, posts missing from the database are skipped
+    private List<BlogListResponseDTO> hydrate(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        Map<Long, BlogSummary> summaries = blogRepository.findSummaries(BlogSpecification.idIn(ids), Sort.unsorted(), ids.size())
+                .stream().collect(Collectors.toMap(BlogSummary::getId, summary -> summary));
+        return convertSummariesToDTOs(ids.stream().map(summaries::get).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
 
-        Page<Blog> blogPage = blogRepository.findAll(specification, pageable);
-        return blogPage.map(this::convertBlogToDTO);
+    private Specification<Blog> filterSpecification(String category, String tag) {
+        Specification<Blog> specification = Specification.where((root, query, criteriaBuilder) -> criteriaBuilder.conjunction());
+        if (category != null && !category.isEmpty()) {
+            specification = specification.and(BlogSpecification.hasCategory(category));
+        }
+        if (tag != null && !tag.isEmpty()) {
+            specification = specification.and(BlogSpecification.hasTag(tag));
+        }
+        return specification;
+    }
+
+
+    private SliceResponseDTO<BlogListResponseDTO> findSlice(Specification<Blog> specification, String after, int size,
+                                                            String sortBy, Sort.Direction direction) {
+        if (after != null && !after.isEmpty()) {
+            Cursor cursor = Cursor.decode(after);
+            if (!sortBy.equals(cursor.getSortBy())) {
+                throw new IllegalArgumentException("Cursor does not match sortBy");
+            }
+            specification = specification.and(afterCursor(cursor, direction));
+        }
+
+        // one extra row tells whether there is a next slice
+        List<BlogSummary> summaries = blogRepository.findSummaries(specification,
+                Sort.by(direction, sortBy, "id"), size + 1);
+        boolean hasNext = summaries.size() > size;
+        if (hasNext) {
+            summaries = summaries.subList(0, size);
+        }
+        String nextCursor = hasNext ? toCursor(summaries.get(summaries.size() - 1), sortBy).encode() : null;
+        return new SliceResponseDTO<>(convertSummariesToDTOs(summaries), summaries.size(), hasNext, nextCursor);
+    }
+
+
+    private Specification<Blog> afterCursor(Cursor cursor, Sort.Direction direction) {
+        if ("createdTime".equals(cursor.getSortBy())) {
+            Date createdTime = new Date(Long.parseLong(cursor.getValue()));
+            return BlogSpecification.after("createdTime", createdTime, cursor.getId(), direction);
+        } else if ("upVotes".equals(cursor.getSortBy())) {
+            return BlogSpecification.after("upVotes", Integer.valueOf(cursor.getValue()), cursor.getId(), direction);
+        } else if ("hotScore".equals(cursor.getSortBy())) {
+            return BlogSpecification.after("hotScore", Double.valueOf(cursor.getValue()), cursor.getId(), direction);
+        }
+        throw new IllegalArgumentException("Unsupported cursor sort: " + cursor.getSortBy());
+    }
+
+
+    private Cursor toCursor(BlogSummary summary, String sortBy) {
+        if ("upVotes".equals(sortBy)) {
+            return new Cursor(sortBy, String.valueOf(summary.getUpVotes()), summary.getId());
+        } else if ("hotScore".equals(sortBy)) {
+            return new Cursor(sortBy, String.valueOf(summary.getHotScore()), summary.getId());
+        }
+        return new Cursor(sortBy, String.valueOf(summary.getCreatedTime().getTime()), summary.getId());
     }
 
 
@@ -266,34 +364,18 @@ public class BlogService {
             response.setTitle(blog.getTitle());
             response.setContent(blog.getContent());
             response.setAuthor(blog.getUser().getUsername());
-            response.setAuthorAvatar(Utils.getImageData(blog.getUser()).getAvatarData());
+            response.setAuthorAvatar(Utils.getAvatarUrl(blog.getUser().getId(), blog.getUser().getAvatarHash(),
+                    ImageService.THUMBNAIL_WIDTH));
 
             // get categories and tags name
             response.setCategories(blog.getCategories().stream().map(Category::getTitle).collect(Collectors.toList()));
             response.setTags(blog.getTags().stream().map(Tag::getTitle).collect(Collectors.toList()));
 
-            // count upVotes and downVotes
-            response.setUpVotes((int) blog.getVotes().stream().filter(vote -> vote.isUpVote() && vote.isStatus()).count());
-            response.setDownVotes((int) blog.getVotes().stream().filter(vote -> !vote.isUpVote() && vote.isStatus()).count());
-
-            // get comments
-            response.setComments(blog.getComments().stream()
-                    .map(comment -> {
-                        CommentResponseDTO commentDTO = new CommentResponseDTO();
-                        commentDTO.setId(comment.getId());
-                        commentDTO.setContent(comment.getContent());
-                        commentDTO.setAuthor(comment.getUser().getUsername());
-                        commentDTO.setAuthorAvatar(Utils.getImageData(comment.getUser()).getAvatarData());
-                        commentDTO.setCreatedTime(comment.getCreatedTime());
-                        commentDTO.setParentCommentId(comment.getParentComment() != null ? comment.getParentComment().getId() : null);
-
-                        // Map votes for the comment
-                        commentDTO.setUpVotes((int) comment.getVotes().stream().filter(vote -> vote.isUpVote() && vote.isStatus()).count());
-                        commentDTO.setDownVotes((int) comment.getVotes().stream().filter(vote -> !vote.isUpVote() && vote.isStatus()).count());
-
-                        return commentDTO;
-                    })
-                    .collect(Collectors.toList()));
+            response.setUpVotes(blog.getUpVotes());
+            response.setDownVotes(blog.getDownVotes());
+
+            // comments are paged separately through CommentService
+            response.setCommentCount(blog.getCommentCount());
 
             response.setCreatedTime(blog.getCreatedTime());
 
@@ -303,36 +385,85 @@ public class BlogService {
     }
 
 
-    // convert Blog to BlogResponseDTO
-    private BlogListResponseDTO convertBlogToDTO(Blog blog) {
-        BlogListResponseDTO dto = new BlogListResponseDTO();
-        dto.setId(blog.getId());
-        dto.setTitle(blog.getTitle());
-        dto.setContent(blog.getContent());
-        dto.setAuthor(blog.getUser().getUsername());
-        dto.setAvatar(Utils.getImageData(blog.getUser()).getAvatarData());
-        dto.setCategories(blog.getCategories().stream().map(Category::getTitle).collect(Collectors.toList()));
-        dto.setTags(blog.getTags().stream().map(Tag::getTitle).collect(Collectors.toList()));
-        dto.setUpVotes((int) blog.getVotes().stream().filter(vote -> vote.isUpVote() && vote.isStatus()).count());
-        dto.setComments(blog.getComments().size());
-        dto.setCreatedTime(blog.getCreatedTime());
-        return dto;
+    // convert a page of summaries to list DTOs, loading every association for the whole page in one query each
+    private Page<BlogListResponseDTO> convertSummariesToDTOs(Page<BlogSummary> summaries) {
+        return new PageImpl<>(convertSummariesToDTOs(summaries.getContent()), summaries.getPageable(),
+                summaries.getTotalElements());
+    }
+
+
+    private List<BlogListResponseDTO> convertSummariesToDTOs(List<BlogSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> blogIds = summaries.stream().map(BlogSummary::getId).collect(Collectors.toList());
+
+        Map<Long, List<String>> categories = groupTitles(blogRepository.findCategoryTitlesByBlogIds(blogIds));
+        Map<Long, List<String>> tags = groupTitles(blogRepository.findTagTitlesByBlogIds(blogIds));
+
+        return summaries.stream().map(summary -> {
+            BlogListResponseDTO dto = new BlogListResponseDTO();
+            dto.setId(summary.getId());
+            dto.setTitle(summary.getTitle());
+            dto.setExcerpt(summary.getExcerpt());
+            dto.setReadingTime(summary.getReadingTime());
+            dto.setCoverImage(summary.getCoverImage());
+            dto.setAuthor(summary.getAuthorName());
+            dto.setAvatar(Utils.getAvatarUrl(summary.getAuthorId(), summary.getAuthorAvatarHash(),
+                    ImageService.THUMBNAIL_WIDTH));
+            dto.setCategories(categories.getOrDefault(summary.getId(), new ArrayList<>()));
+            dto.setTags(tags.getOrDefault(summary.getId(), new ArrayList<>()));
+            dto.setUpVotes(summary.getUpVotes());
+            dto.setComments(summary.getCommentCount());
+            dto.setCreatedTime(summary.getCreatedTime());
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
+
+    private Map<Long, List<String>> groupTitles(List<BlogTitleView> titles) {
+        return titles.stream().collect(Collectors.groupingBy(BlogTitleView::getBlogId,
+                Collectors.mapping(BlogTitleView::getTitle, Collectors.toList())));
     }
 
 
+    /**
+     * Toggles the user's up vote on a post. On PostgreSQL this is a single upsert statement, elsewhere the
+     * vote is read and written through JPA.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if the post or the user does not exist
+     * @throws DuplicateKeyException if a concurrent toggle by the same user inserted the vote first
+     */
     @Transactional
     public boolean upVoteOrDeleteVoteBlog(Integer blogId, Integer userId) {
         Long blogIdLong = blogId.longValue();
         Long userIdLong = userId.longValue();
 
+        if (databasePlatform.isPostgres()) {
+            if (voteCounterBuffer.isEnabled()) {
+                int delta = voteUpsertRepository.toggleBlogUpVoteDeferred(userIdLong, blogIdLong);
+                if (delta != 0) {
+                    voteCounterBuffer.add(blogIdLong, delta);
+                }
+            } else {
+                voteUpsertRepository.toggleBlogUpVote(userIdLong, blogIdLong);
+            }
+            return true;
+        }
+
         Optional<Vote> optionalVote = voteRepository.findVoteByBlog_IdAndUser_Id(blogIdLong, userIdLong);
 
         if (optionalVote.isPresent()) {
             Vote vote = optionalVote.get();
             if (vote.isUpVote() && vote.isStatus()) {
                 vote.setStatus(false);
+                vote.setUpdatedTime(new Date());
+                applyUpVote(blogIdLong, userIdLong, -1);
             } else if (vote.isUpVote() && !vote.isStatus()) {
                 vote.setStatus(true);
+                vote.setUpdatedTime(new Date());
+                applyUpVote(blogIdLong, userIdLong, 1);
             }
         } else {
             Vote vote = new Vote();
@@ -341,17 +472,43 @@ public class BlogService {
 
             Optional<User> optionalUser = userRepository.findUserById(userIdLong);
             Optional<Blog> optionalBlog = blogRepository.findById(blogIdLong);
-            optionalUser.ifPresent(vote::setUser);
-            optionalBlog.ifPresent(vote::setBlog);
+            if (optionalUser.isEmpty() || optionalBlog.isEmpty()) {
+                return false;
+            }
+            vote.setUser(optionalUser.get());
+            vote.setBlog(optionalBlog.get());
 
             vote.setCreatedTime(new Date());
+            vote.setUpdatedTime(vote.getCreatedTime());
 
-            voteRepository.save(vote);
+            try {
+                voteRepository.saveAndFlush(vote);
+            } catch (DataIntegrityViolationException e) {
+                // the post and the user exist, so a concurrent toggle inserted the vote first
+                throw new DuplicateKeyException("Concurrent vote on blog " + blogId + " by user " + userId, e);
+            }
+            applyUpVote(blogIdLong, userIdLong, 1);
         }
         return true;
     }
 
 
+    // moves the post counters, hot score and both users' totals by one up vote
+    private void applyUpVote(Long blogId, Long userId, int delta) {
+        userStatsRepository.adjustVotesGiven(userId, delta);
+        if (voteCounterBuffer.isEnabled()) {
+            voteCounterBuffer.add(blogId, delta);
+            return;
+        }
+        blogRepository.adjustVoteCounts(blogId, delta, 0);
+        blogRepository.findVoteStateById(blogId).ifPresent(state -> {
+            userStatsRepository.adjustUpVotesReceived(state.getAuthorId(), delta);
+            blogRepository.updateHotScore(blogId, HotScore.compute(state.getUpVotes(), state.getDownVotes(),
+                    state.getCreatedTime(), System.currentTimeMillis()));
+        });
+    }
+
+
     @Transactional
     public boolean createComment(Integer blogId, Optional<Integer> commentId, User user, String comment) {
         Comment newComment = new Comment();
@@ -371,14 +528,90 @@ public class BlogService {
                 return false; // Parent comment not found
             }
             Comment parentComment = parentCommentOptional.get();
+            if (parentComment.getDepth() >= Comment.MAX_DEPTH) {
+                return false; // Thread too deep
+            }
             newComment.setBlog(parentComment.getBlog());
             newComment.setParentComment(parentComment);
+            newComment.setDepth(parentComment.getDepth() + 1);
         }
 
         commentRepository.save(newComment);
+        // the path ends with the comment's own id, which save assigns from the sequence before the row is written
+        Comment parent = newComment.getParentComment();
+        if (parent == null) {
+            newComment.setPath(Comment.pathSegment(newComment.getId()));
+        } else if (parent.getPath() != null) {
+            newComment.setPath(parent.getPath() + Comment.PATH_SEPARATOR + Comment.pathSegment(newComment.getId()));
+        }
+        userStatsRepository.adjustCommentCount(user.getId(), 1);
+
+        // keep the post and parent comment counters in step with the new row
+        blogRepository.incrementCommentCount(newComment.getBlog().getId());
+        if (newComment.getParentComment() != null) {
+            commentRepository.incrementCommentCount(newComment.getParentComment().getId());
+        }
         return true;
     }
 
 
+    /**
+     * Maps category titles to entity references without loading them.
+     *
+     * @throws IllegalArgumentException if a title does not exist
+     */
+    private List<Category> resolveCategories(Collection<String> titles) {
+        Map<String, Long> ids = resolveIds(titles, catalogService.getCategories(), categoryRepository::findCatalogByTitleIn,
+                CategoryResponseDTO::getTitle, CategoryResponseDTO::getId, "category");
+        List<Category> categories = new ArrayList<>();
+        ids.values().forEach(id -> categories.add(categoryRepository.getReferenceById(id)));
+        return categories;
+    }
 
+
+    /**
+     * Maps tag titles to entity references without loading them.
+     *
+     * @throws IllegalArgumentException if a title does not exist
+     */
+    private List<Tag> resolveTags(Collection<String> titles) {
+        Map<String, Long> ids = resolveIds(titles, catalogService.getTags(), tagRepository::findCatalogByTitleIn,
+                TagResponseDTO::getTitle, TagResponseDTO::getId, "tag");
+        List<Tag> tags = new ArrayList<>();
+        ids.values().forEach(id -> tags.add(tagRepository.getReferenceById(id)));
+        return tags;
+    }
+
+
+    private List<String> distinct(List<String> titles) {
+        return titles == null ? new ArrayList<>() : titles.stream().distinct().collect(Collectors.toList());
+    }
+
+
+    // titles missing from the cached catalog may have been created on another node, look those up in one query
+    private <T> Map<String, Long> resolveIds(Collection<String> titles, List<T> catalog,
+                                             Function<Collection<String>, List<T>> lookup,
+                                             Function<T, String> title, Function<T, Long> id, String kind) {
+        Map<String, Long> ids = new LinkedHashMap<>();
+        if (titles == null || titles.isEmpty()) {
+            return ids;
+        }
+
+        Map<String, Long> known = new HashMap<>();
+        catalog.forEach(entry -> known.put(title.apply(entry), id.apply(entry)));
+
+        Set<String> missing = new HashSet<>(titles);
+        missing.removeAll(known.keySet());
+        if (!missing.isEmpty()) {
+            lookup.apply(missing).forEach(entry -> known.put(title.apply(entry), id.apply(entry)));
+        }
+
+        for (String t : titles) {
+            if (!known.containsKey(t)) {
+                throw new IllegalArgumentException("Unknown " + kind + ": " + t);
+            }
+            ids.put(t, known.get(t));
+        }
+        return ids;
+    }
 }
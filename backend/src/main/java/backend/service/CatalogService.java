@@ -0,0 +1,74 @@
+package backend.service;
+
+import backend.dto.CategoryDTO;
+import backend.dto.CategoryResponseDTO;
+import backend.dto.TagDTO;
+import backend.dto.TagResponseDTO;
+import backend.entity.Category;
+import backend.entity.Tag;
+import backend.repository.CategoryRepository;
+import backend.repository.TagRepository;
+import backend.search.SuggestIndex;
+import backend.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Category and tag catalogs. Both are small and read on nearly every page, so they are cached and
+ * evicted whenever an entry is created.
+ */
+@Service
+public class CatalogService {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+
+    @CacheEvict(value = Constants.CATEGORIES_CACHE, allEntries = true)
+    public boolean createCategory(CategoryDTO categoryDTO) {
+        Category category = new Category();
+        category.setTitle(categoryDTO.getTitle());
+        category.setDescription(categoryDTO.getDescription());
+        category.setCreatedTime(new Date());
+        categoryRepository.save(category);
+        suggestIndex.add(SuggestIndex.CATEGORY, category.getId(), category.getTitle());
+        return true;
+    }
+
+
+    // the cached list is shared between requests, callers must not modify it
+    @Cacheable(Constants.CATEGORIES_CACHE)
+    public List<CategoryResponseDTO> getCategories() {
+        return Collections.unmodifiableList(categoryRepository.findCatalog());
+    }
+
+
+    @CacheEvict(value = Constants.TAGS_CACHE, allEntries = true)
+    public boolean createTag(TagDTO tagDTO) {
+        Tag tag = new Tag();
+        tag.setTitle(tagDTO.getTitle());
+        tag.setDescription(tagDTO.getDescription());
+        tag.setCreatedTime(new Date());
+        tagRepository.save(tag);
+        suggestIndex.add(SuggestIndex.TAG, tag.getId(), tag.getTitle());
+        return true;
+    }
+
+
+    @Cacheable(Constants.TAGS_CACHE)
+    public List<TagResponseDTO> getTags() {
+        return Collections.unmodifiableList(tagRepository.findCatalog());
+    }
+}
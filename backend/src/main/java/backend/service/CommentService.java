@@ -0,0 +1,114 @@
+package backend.service;
+
+import backend.dto.CommentResponseDTO;
+import backend.dto.SliceResponseDTO;
+import backend.projection.CommentView;
+import backend.repository.CommentRepository;
+import backend.repository.CommentTreeRepository;
+import backend.util.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads comment threads a page at a time. Each page holds a slice of comments at one level with their
+ * replies down to a bounded depth and a bounded number per comment; the rest is fetched with
+ * {@link #getReplies}. Whatever the size of a thread, a page costs three queries.
+ */
+@Service
+public class CommentService {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private CommentTreeRepository commentTreeRepository;
+
+
+    @Transactional
+    public Page<CommentResponseDTO> getComments(Long blogId, Pageable pageable, int depth, int perParent) {
+        Page<Long> ids = commentRepository.findTopLevelIds(blogId, pageable);
+        return new PageImpl<>(loadThreads(ids.getContent(), depth, perParent), pageable, ids.getTotalElements());
+    }
+
+
+    // direct replies of a comment after the given id, each with its own replies as in getComments
+    @Transactional
+    public SliceResponseDTO<CommentResponseDTO> getReplies(Long commentId, Long afterId, int size, int depth,
+                                                           int perParent) {
+        List<Long> ids = commentRepository.findReplyIds(commentId, afterId != null ? afterId : 0L,
+                PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        if (hasNext) {
+            ids = ids.subList(0, size);
+        }
+        String nextCursor = hasNext ? String.valueOf(ids.get(ids.size() - 1)) : null;
+        List<CommentResponseDTO> content = loadThreads(ids, depth, perParent);
+        return new SliceResponseDTO<>(content, content.size(), hasNext, nextCursor);
+    }
+
+
+    public boolean exists(Long commentId) {
+        return commentRepository.existsById(commentId.intValue());
+    }
+
+
+    private List<CommentResponseDTO> loadThreads(List<Long> anchorIds, int depth, int perParent) {
+        if (anchorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> replyIds = commentTreeRepository.findDescendantIds(anchorIds, depth, perParent);
+
+        List<Long> ids = new ArrayList<>(anchorIds);
+        ids.addAll(replyIds);
+        Map<Long, CommentView> views = commentRepository.findViews(ids).stream()
+                .collect(Collectors.toMap(CommentView::getId, Function.identity()));
+
+        Map<Long, CommentResponseDTO> loaded = new HashMap<>();
+        List<CommentResponseDTO> threads = new ArrayList<>();
+        for (Long id : anchorIds) {
+            CommentView view = views.get(id);
+            if (view != null) {
+                CommentResponseDTO dto = toDTO(view);
+                loaded.put(id, dto);
+                threads.add(dto);
+            }
+        }
+        // replies come in path order, so a parent is always attached before its children
+        for (Long id : replyIds) {
+            CommentView view = views.get(id);
+            CommentResponseDTO parent = view != null ? loaded.get(view.getParentId()) : null;
+            if (parent != null) {
+                CommentResponseDTO dto = toDTO(view);
+                loaded.put(id, dto);
+                parent.getReplies().add(dto);
+            }
+        }
+        return threads;
+    }
+
+
+    private CommentResponseDTO toDTO(CommentView view) {
+        CommentResponseDTO dto = new CommentResponseDTO();
+        dto.setId(view.getId());
+        dto.setParentCommentId(view.getParentId());
+        dto.setContent(view.getContent());
+        dto.setAuthor(view.getAuthorName());
+        dto.setAuthorAvatar(Utils.getAvatarUrl(view.getAuthorId(), view.getAuthorAvatarHash(),
+                ImageService.THUMBNAIL_WIDTH));
+        dto.setUpVotes(view.getUpVotes());
+        dto.setDownVotes(view.getDownVotes());
+        dto.setReplyCount(view.getReplyCount());
+        dto.setReplies(new ArrayList<>());
+        dto.setCreatedTime(view.getCreatedTime());
+        return dto;
+    }
+}
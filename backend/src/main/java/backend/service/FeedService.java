@@ -0,0 +1,132 @@
+package backend.service;
+
+import backend.config.AsyncConfig;
+import backend.dto.BlogListResponseDTO;
+import backend.dto.SliceResponseDTO;
+import backend.event.BlogCreatedEvent;
+import backend.repository.TimelineRepository;
+import backend.util.Cursor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Following feed of a user: posts by the users, tags and categories they follow.
+ *
+ * New posts are fanned out on write into timeline_entries, so reading a feed is one index range scan.
+ * Posts by authors with more followers than {@code meet.feed.pull-threshold} are not fanned out, they are
+ * marked pulled and merged when the feed is read. The choice is made once per post, so a post stays in the
+ * feeds when its author later crosses the threshold either way. Follows only affect posts created afterwards,
+ * an unfollow removes the entries that no longer reach the user through another follow.
+ */
+@Service
+@Log4j2
+public class FeedService {
+
+    public static final String FEED = "feed";
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    @Autowired
+    private BlogService blogService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.feed.pull-threshold:10000}")
+    private int pullThreshold;
+
+    @Value("${meet.feed.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${meet.feed.retention-days:30}")
+    private int retentionDays;
+
+
+    // runs on the publishing thread after its commit when the fan-out queue is full, so it must not join
+    // the transaction that already committed
+    @Async(AsyncConfig.FAN_OUT_EXECUTOR)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBlogCreated(BlogCreatedEvent event) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Long> recipients = transaction.execute(status -> {
+            boolean pushToFollowers = timelineRepository.countFollowers(event.getAuthorId()) <= pullThreshold;
+            if (!pushToFollowers) {
+                timelineRepository.markPulled(event.getBlogId());
+            }
+            return timelineRepository.findRecipients(event.getBlogId(), event.getAuthorId(), pushToFollowers);
+        });
+
+        // one transaction per batch keeps locks and undo short for posts with many recipients
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<Long> batch = recipients.subList(from, Math.min(from + batchSize, recipients.size()));
+            transaction.executeWithoutResult(status ->
+                    timelineRepository.insert(event.getBlogId(), event.getCreatedTime(), batch));
+        }
+        log.debug("Fanned out post {} to {} timelines", event.getBlogId(), recipients.size());
+    }
+
+
+    @Transactional
+    public SliceResponseDTO<BlogListResponseDTO> getFeed(Long userId, String after, int size) {
+        Date before = null;
+        Long beforeId = null;
+        if (after != null && !after.isEmpty()) {
+            Cursor cursor = Cursor.decode(after);
+            if (!FEED.equals(cursor.getSortBy())) {
+                throw new IllegalArgumentException("Cursor does not match feed");
+            }
+            before = new Date(Long.parseLong(cursor.getValue()));
+            beforeId = cursor.getId();
+        }
+
+        // both sources are read one row past the slice, the merge then tells whether there is more
+        List<TimelineRepository.Entry> entries = new ArrayList<>(timelineRepository.findEntries(userId, before, beforeId, size + 1));
+        entries.addAll(timelineRepository.findPulledPosts(userId, before, beforeId, size + 1));
+        // a post reaches a follower through both when they also follow one of its tags or categories
+        Map<Long, TimelineRepository.Entry> merged = new LinkedHashMap<>();
+        entries.stream()
+                .sorted(Comparator.comparing(TimelineRepository.Entry::getCreatedTime)
+                        .thenComparing(TimelineRepository.Entry::getBlogId).reversed())
+                .forEach(entry -> merged.putIfAbsent(entry.getBlogId(), entry));
+
+        List<TimelineRepository.Entry> page = new ArrayList<>(merged.values());
+        boolean hasNext = page.size() > size;
+        if (hasNext) {
+            page = page.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            TimelineRepository.Entry last = page.get(page.size() - 1);
+            nextCursor = new Cursor(FEED, String.valueOf(last.getCreatedTime().getTime()), last.getBlogId()).encode();
+        }
+        List<BlogListResponseDTO> content = blogService.getBlogsByIds(
+                page.stream().map(TimelineRepository.Entry::getBlogId).collect(Collectors.toList()));
+        return new SliceResponseDTO<>(content, content.size(), hasNext, nextCursor);
+    }
+
+
+    // feeds are for recent posts, old entries would only grow the table
+    @Scheduled(initialDelayString = "${meet.feed.prune-interval-ms:3600000}",
+               fixedDelayString = "${meet.feed.prune-interval-ms:3600000}")
+    @Transactional
+    public void prune() {
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        int deleted = timelineRepository.deleteOlderThan(cutoff);
+        log.debug("Pruned {} timeline entries", deleted);
+    }
+}
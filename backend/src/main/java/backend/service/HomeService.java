@@ -2,26 +2,31 @@ package backend.service;
 
 import backend.dto.*;
 import backend.entity.*;
+import backend.event.PasswordChangedEvent;
+import backend.event.UserCreatedEvent;
 import backend.repository.*;
 import backend.security.JWTGenerator;
 import backend.util.Utils;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -42,6 +47,7 @@ public class HomeService {
     @Autowired
     private JWTGenerator jwtGenerator;
 
+
     @Autowired
     private BlogService blogService;
 
@@ -52,7 +58,10 @@ public class HomeService {
     private CommentRepository commentRepository;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
 
     @Autowired
     private VerificationRepository verificationRepository;
@@ -60,7 +69,23 @@ public class HomeService {
     @Autowired
     private OneTimeTokenRepository oneTimeTokenRepository;
 
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private FuzzySearchRepository fuzzySearchRepository;
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    // the user and its stats row commit together; the password is hashed first, outside the transaction
     public boolean createUser(UserDTO userDTO) {
         User user = new User();
         user.setUsername(userDTO.getUsername());
@@ -68,34 +93,44 @@ public class HomeService {
         user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
         user.setCreatedTime(new Date());
 
-        Role roles = roleRepository.findByName("USER");
-        user.setRoles(Collections.singletonList(roles));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Role roles = roleRepository.findByName("USER");
+            user.setRoles(Collections.singletonList(roles));
 
-        userRepository.save(user);
+            userRepository.save(user);
+            userStatsRepository.save(new UserStats(user.getId()));
+            eventPublisher.publishEvent(new UserCreatedEvent(user.getId(), user.getUsername()));
+        });
         return true;
     }
 
 
-    @Transactional
+    // hashed before the short write, no connection is held while the password waits for the hashing executor
     public boolean completeOauthUserRegistration(UserDTO userDTO, String token) {
-        if (oneTimeTokenRepository.existsByTokenAndExpiredFalse(token)) {
-            Optional<User> optionalUser = userRepository.findUserByEmail(userDTO.getEmail());
-            if (optionalUser.isPresent()) {
-                User user = optionalUser.get();
-                user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+        if (!oneTimeTokenRepository.existsByTokenAndExpiredFalse(token) || !userRepository.existsByEmail(userDTO.getEmail())) {
+            return false;
+        }
+        String password = passwordEncoder.encode(userDTO.getPassword());
 
-                OneTimeToken byToken = oneTimeTokenRepository.findByToken(token);
-                byToken.setExpired(true);
-                userRepository.save(user);
-                oneTimeTokenRepository.save(byToken);
-                return true;
+        // checked again, the token may have been used while the password was hashed
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            OneTimeToken byToken = oneTimeTokenRepository.findByToken(token);
+            Optional<User> optionalUser = userRepository.findUserByEmail(userDTO.getEmail());
+            if (byToken == null || byToken.isExpired() || optionalUser.isEmpty()) {
+                return false;
             }
-        }
-        return false;
+            User user = optionalUser.get();
+            user.setPassword(password);
+
+            byToken.setExpired(true);
+            userRepository.save(user);
+            oneTimeTokenRepository.save(byToken);
+            return true;
+        });
     }
 
 
-    @Transactional
+    // outside any transaction, the user is loaded before the password is checked on the hashing executor
     public LoginResponseDTO login(LoginDTO loginDTO) {
         try {
             Authentication authentication = authenticationManager.authenticate(
@@ -106,7 +141,7 @@ public class HomeService {
 
             User user = userRepository.findUserByUsername(loginDTO.getAccount()).get();
             return new LoginResponseDTO(token, user.getId(), user.getUsername(), user.getEmail(),
-                    Utils.getImageData(user).getAvatarData());
+                    Utils.getAvatarUrl(user.getId(), user.getAvatarHash(), ImageService.PROFILE_AVATAR_WIDTH));
         } catch (AuthenticationException e) {
             log.error(e.getMessage());
             return null;
@@ -114,6 +149,12 @@ public class HomeService {
     }
 
 
+    /**
+     * Loads every post, vote and follow of the user in one response.
+     *
+     * @deprecated use {@link #getProfileHeader(String)} and the paginated profile lists instead
+     */
+    @Deprecated
     @Transactional
     public ProfileResponseDTO getProfile(String username) {
         Optional<User> optionalUser = userRepository.findUserByUsername(username);
@@ -124,8 +165,8 @@ public class HomeService {
             response.setId(user.getId());
             response.setName(user.getUsername());
             response.setBio(user.getBio());
-            response.setAvatar(Utils.getImageData(user).getAvatarData());
-            response.setBanner(Utils.getBannerDate(user).getBannerData());
+            response.setAvatar(Utils.getAvatarUrl(user.getId(), user.getAvatarHash(), ImageService.LARGE_AVATAR_WIDTH));
+            response.setBanner(Utils.getBannerUrl(user.getId(), user.getBannerHash(), ImageService.BANNER_WIDTH));
 
             // all posts of the specific user
             List<Blog> blogs = user.getBlogs();
@@ -219,6 +260,75 @@ public class HomeService {
     }
 
 
+    // profile header: the user row and its user_stats row, both read by primary key
+    @Transactional
+    public ProfileHeaderDTO getProfileHeader(String username) {
+        Optional<User> optionalUser = userRepository.findUserByUsername(username);
+        if (optionalUser.isEmpty()) {
+            return null;
+        }
+        User user = optionalUser.get();
+        ProfileHeaderDTO response = new ProfileHeaderDTO();
+        response.setId(user.getId());
+        response.setName(user.getUsername());
+        response.setBio(user.getBio());
+        response.setAvatar(Utils.getAvatarUrl(user.getId(), user.getAvatarHash(), ImageService.LARGE_AVATAR_WIDTH));
+        response.setBanner(Utils.getBannerUrl(user.getId(), user.getBannerHash(), ImageService.BANNER_WIDTH));
+        Optional<UserStats> stats = userStatsRepository.findById(user.getId());
+        if (stats.isPresent()) {
+            response.setPostCount(stats.get().getPostCount());
+            response.setFollowerCount(stats.get().getFollowerCount());
+            response.setFollowingCount(stats.get().getFollowingCount());
+            response.setTotalUpVotes(stats.get().getVotesGiven());
+            response.setTotalReceivedUpVotes(stats.get().getUpVotesReceived());
+            response.setTotalComments(stats.get().getCommentCount());
+        } else {
+            // not created yet by UserStatsReconciliationJob, count from the source rows
+            response.setPostCount(userRepository.countPosts(user.getId()));
+            response.setFollowerCount(userRepository.countFollowers(user.getId()));
+            response.setFollowingCount(userRepository.countFollowing(user.getId()));
+            response.setTotalUpVotes(voteRepository.countVotesByUser_IdAndUpVoteIsTrueAndStatusIsTrue(user.getId()));
+            response.setTotalReceivedUpVotes(userRepository.sumReceivedUpVotes(user.getId()));
+            response.setTotalComments(commentRepository.countCommentsByUserId(user.getId()));
+        }
+        response.setCreatedTime(user.getCreatedTime());
+        return response;
+    }
+
+
+    @Transactional
+    public Page<VoteResponseDTO> getUserVotes(Long userId, Long blogId, Pageable pageable) {
+        if (blogId != null) {
+            return voteRepository.findActiveVotesOnBlog(userId, blogId, pageable);
+        }
+        return voteRepository.findActiveVotes(userId, pageable);
+    }
+
+
+    @Transactional
+    public Page<FollowResponseDTO> getFollowers(Long userId, Pageable pageable) {
+        return userRepository.findFollowers(userId, pageable);
+    }
+
+
+    @Transactional
+    public Page<FollowResponseDTO> getFollowing(Long userId, Pageable pageable) {
+        return userRepository.findFollowing(userId, pageable);
+    }
+
+
+    @Transactional
+    public Page<TagResponseDTO> getFollowedTags(Long userId, Pageable pageable) {
+        return userRepository.findFollowedTags(userId, pageable);
+    }
+
+
+    @Transactional
+    public Page<CategoryResponseDTO> getFollowedCategories(Long userId, Pageable pageable) {
+        return userRepository.findFollowedCategories(userId, pageable);
+    }
+
+
     @Transactional
     public boolean updateUserInfo(UserInfoDTO userInfoDTO) {
         try {
@@ -237,43 +347,55 @@ public class HomeService {
     }
 
 
-    @Transactional
+    // decoded and resized before the transaction, which only writes the rows
     public boolean updateAvatar(Integer userId, MultipartFile avatar) throws IOException {
         String imageName = avatar.getName();
-        String imageType = avatar.getContentType();
-        byte[] imageBlob = avatar.getBytes();
+        ImageService.RenderedImages images = imageService.renderUpload(avatar, UserImage.Kind.AVATAR);
 
-        Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
+            if (optionalUser.isPresent()) {
+                User user = optionalUser.get();
 
-            user.setAvatarName(imageName);
-            user.setAvatarType(imageType);
-            user.setAvatarBlob(imageBlob);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+                imageService.applyAvatar(user, imageName, images);
+                userRepository.save(user);
+                return true;
+            }
+            return false;
+        });
     }
 
 
-    @Transactional
+    // decoded and resized before the transaction, which only writes the rows
     public boolean updateBanner(Integer userId, MultipartFile banner) throws IOException {
         String imageName = banner.getName();
-        String imageType = banner.getContentType();
-        byte[] imageBlob = banner.getBytes();
+        ImageService.RenderedImages images = imageService.renderUpload(banner, UserImage.Kind.BANNER);
 
-        Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Optional<User> optionalUser = userRepository.findUserById(userId.longValue());
+            if (optionalUser.isPresent()) {
+                User user = optionalUser.get();
 
-            user.setBannerName(imageName);
-            user.setBannerType(imageType);
-            user.setBannerBlob(imageBlob);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+                imageService.applyBanner(user, imageName, images);
+                userRepository.save(user);
+                return true;
+            }
+            return false;
+        });
+    }
+
+
+    // typo tolerant username lookup, best match first
+    @Transactional
+    public List<UserMatchDTO> findUsers(String name, double threshold, int limit) {
+        return fuzzySearchRepository.findUsers(name, threshold, limit).stream().map(match -> {
+            UserMatchDTO dto = new UserMatchDTO();
+            dto.setId(match.getId());
+            dto.setUsername(match.getUsername());
+            dto.setAvatar(Utils.getAvatarUrl(match.getId(), match.getAvatarHash(), ImageService.THUMBNAIL_WIDTH));
+            dto.setSimilarity(match.getSimilarity());
+            return dto;
+        }).collect(Collectors.toList());
     }
 
 
@@ -289,6 +411,9 @@ public class HomeService {
 
                     // current user follow the target user
                     List<User> currentFollowing = currentUser.getFollowing();
+                    if (currentFollowing.contains(targetUser)) {
+                        return true;
+                    }
                     currentFollowing.add(targetUser);
 
                     // target user add the current follower
@@ -299,6 +424,8 @@ public class HomeService {
                     targetUser.setFollowers(targetFollowers);
                     userRepository.save(currentUser);
                     userRepository.save(targetUser);
+                    userStatsRepository.adjustFollowingCount(id, 1);
+                    userStatsRepository.adjustFollowerCount(targetId, 1);
                     return true;
                 }
                 return false;
@@ -323,7 +450,9 @@ public class HomeService {
 
                     // current user unfollow the target user
                     List<User> currentFollowing = currentUser.getFollowing();
-                    currentFollowing.remove(targetUser);
+                    if (!currentFollowing.remove(targetUser)) {
+                        return true;
+                    }
 
                     // target user remove the current follower
                     List<User> targetFollowers = targetUser.getFollowers();
@@ -333,6 +462,11 @@ public class HomeService {
                     targetUser.setFollowers(targetFollowers);
                     userRepository.save(currentUser);
                     userRepository.save(targetUser);
+                    userStatsRepository.adjustFollowingCount(id, -1);
+                    userStatsRepository.adjustFollowerCount(targetId, -1);
+                    // flushed so the feed clean up no longer sees the follow
+                    userRepository.flush();
+                    timelineRepository.deleteUnfollowedAuthor(id, targetId);
                     return true;
                 }
                 return false;
@@ -359,7 +493,7 @@ public class HomeService {
             .findByUserAndStatusAndExpirationTimeAfter(user, Verification.Status.PENDING, new Date());
         if (optionalVerification.isPresent()) {
             code = optionalVerification.get().getCode();
-            emailGenerator(email, code);
+            emailGenerator(user, code);
             return true;
         } else {
             code = Utils.generateVerificationCode();
@@ -377,7 +511,7 @@ public class HomeService {
         verification.setExpirationTime(calendar.getTime());
 
         verificationRepository.save(verification);
-        emailGenerator(email, code);
+        emailGenerator(user, code);
         return true;
     }
 
@@ -390,28 +524,33 @@ public class HomeService {
     }
 
 
-    @Transactional
+    // hashed before the short write, as in completeOauthUserRegistration
     public boolean resetPassword(String email, String password) {
         Optional<User> optionalUser = userRepository.findUserByEmail(email);
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
-
-            if (verificationRepository.existsByUserAndStatusAndExpirationTimeAfter(user, Verification.Status.USED,
-                    new Date())) {
-                PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-                String encode = passwordEncoder.encode(password);
-                user.setPassword(encode);
-
-                userRepository.save(user);
-                return true;
-            }
+        if (optionalUser.isEmpty() || !verificationRepository.existsByUserAndStatusAndExpirationTimeAfter(
+                optionalUser.get(), Verification.Status.USED, new Date())) {
             return false;
         }
-        return false;
+        String encode = passwordEncoder.encode(password);
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            User user = userRepository.findUserByEmail(email).orElse(null);
+            if (user == null || !verificationRepository.existsByUserAndStatusAndExpirationTimeAfter(user,
+                    Verification.Status.USED, new Date())) {
+                return false;
+            }
+            user.setPassword(encode);
+            user.setPasswordChangedTime(new Date());
+
+            userRepository.save(user);
+            eventPublisher.publishEvent(new PasswordChangedEvent(user.getUsername()));
+            return true;
+        });
     }
 
 
-    private void emailGenerator(String to, String code) {
+    // queued in the caller's transaction, MailOutboxDispatcher sends it
+    private void emailGenerator(User user, String code) {
         String content = "Hi,\n\n"
                    + "We received a request to reset your password. Your verification code is:\n\n"
                    + code + "\n\n"
@@ -419,14 +558,8 @@ public class HomeService {
                    + "If you did not request a password reset, please ignore this email or contact support.\n\n"
                    + "Thank you,\n"
                    + "The Meet Team";
-        SimpleMailMessage message = new SimpleMailMessage();
-
-        message.setTo(to);
-        message.setSubject("Reset Password Notification");
-        message.setText(content);
-        message.setFrom("meet.community.mail@gmail.com");
-
-        mailSender.send(message);
+        mailOutboxService.enqueue(user.getId(), MailOutboxService.RESET_PASSWORD, user.getEmail(),
+                "Reset Password Notification", content);
     }
 
 
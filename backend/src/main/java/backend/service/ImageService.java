@@ -0,0 +1,374 @@
+package backend.service;
+
+import backend.entity.User;
+import backend.entity.UserImage;
+import backend.projection.ImageView;
+import backend.repository.UserImageRepository;
+import backend.repository.UserRepository;
+import backend.util.Utils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.transaction.Transactional;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Upload pipeline and store for avatars and banners. Every upload is decoded, checked and re-encoded,
+ * which drops EXIF and any other embedded metadata, and fixed size variants are stored next to the
+ * original so pages can ask for the smallest rendition they need. All bytes live in user_images, the
+ * users row only keeps name, type and hash.
+ *
+ * The "original" is the sanitized re-encode, not the uploaded bytes: images larger than
+ * {@value #MAX_DECODED_DIMENSION}px are subsampled while decoding, so their original is already scaled
+ * down.
+ *
+ * Decoding and resizing happen in {@link #renderUpload} and {@code render*}, outside of any transaction,
+ * the {@code apply*} methods only write the rows.
+ */
+@Service
+@Log4j2
+public class ImageService {
+
+    // avatar size used by feeds, comments and other dense lists
+    public static final int THUMBNAIL_WIDTH = 48;
+
+    public static final int PROFILE_AVATAR_WIDTH = 128;
+
+    public static final int LARGE_AVATAR_WIDTH = 512;
+
+    public static final int BANNER_WIDTH = 1500;
+
+    public static final int[] AVATAR_WIDTHS = {THUMBNAIL_WIDTH, PROFILE_AVATAR_WIDTH, LARGE_AVATAR_WIDTH};
+
+    public static final int[] BANNER_WIDTHS = {BANNER_WIDTH};
+
+    private static final int MAX_DIMENSION = 8000;
+
+    // larger images are subsampled while decoding, so a huge upload never becomes a huge bitmap
+    private static final int MAX_DECODED_DIMENSION = 3000;
+
+    // sniffed before anything is decoded: JPEG, PNG, GIF and BMP
+    private static final byte[][] SIGNATURES = {
+        {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+        {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'},
+        {'G', 'I', 'F', '8'},
+        {'B', 'M'}
+    };
+
+    private final DataSize maxUploadSize;
+
+    private final Semaphore uploadPermits;
+
+    @Autowired
+    private UserImageRepository userImageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+
+    public ImageService(@Value("${meet.images.max-upload-size:10MB}") DataSize maxUploadSize,
+                        @Value("${meet.images.max-concurrent-uploads:4}") int maxConcurrentUploads) {
+        this.maxUploadSize = maxUploadSize;
+        this.uploadPermits = new Semaphore(maxConcurrentUploads);
+    }
+
+
+    /**
+     * Sanitizes an uploaded file straight from the multipart temp file, without copying it onto the heap,
+     * and renders its variants. The upload permit is held until the last bitmap is encoded, so
+     * {@code meet.images.max-concurrent-uploads} bounds the decoding and the resizing alike.
+     *
+     * @throws IllegalArgumentException   if the file is too large, not a supported image or too big
+     * @throws RejectedExecutionException if this node is already processing the maximum number of uploads
+     */
+    public RenderedImages renderUpload(MultipartFile file, UserImage.Kind kind) throws IOException {
+        if (file.getSize() > maxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("Image exceeds " + maxUploadSize.toMegabytes() + "MB");
+        }
+        if (!uploadPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many concurrent uploads");
+        }
+        try (InputStream in = file.getInputStream()) {
+            ProcessedImage original = sanitize(in);
+            return kind == UserImage.Kind.AVATAR ? renderAvatar(original) : renderBanner(original);
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+
+    public ProcessedImage sanitize(byte[] data) throws IOException {
+        return sanitize(new ByteArrayInputStream(data));
+    }
+
+
+    /**
+     * Decodes and re-encodes the image. PNG is kept for images with transparency, everything else becomes
+     * JPEG.
+     *
+     * The header is checked before decoding: unknown signatures and oversized dimensions are rejected
+     * without reading the pixel data.
+     *
+     * @throws IllegalArgumentException if the bytes are not a supported image or it is too large
+     */
+    private ProcessedImage sanitize(InputStream input) throws IOException {
+        InputStream in = input.markSupported() ? input : new BufferedInputStream(input);
+        if (!hasImageSignature(in)) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > MAX_DIMENSION || height > MAX_DIMENSION) {
+                    throw new IllegalArgumentException("Image dimensions exceed " + MAX_DIMENSION + "px");
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = (Math.max(width, height) + MAX_DECODED_DIMENSION - 1) / MAX_DECODED_DIMENSION;
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                String format = image.getColorModel().hasAlpha() ? "png" : "jpeg";
+                return encode(image, format);
+            } catch (IIOException e) {
+                throw new IllegalArgumentException("Corrupt image", e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+
+    private boolean hasImageSignature(InputStream in) throws IOException {
+        byte[] header = new byte[8];
+        in.mark(header.length);
+        int read = in.readNBytes(header, 0, header.length);
+        in.reset();
+
+        for (byte[] signature : SIGNATURES) {
+            if (read >= signature.length && Arrays.equals(header, 0, signature.length, signature, 0, signature.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Crops and resizes the avatar variants. Pure CPU work, call it before opening the transaction that
+     * applies the result.
+     */
+    public RenderedImages renderAvatar(ProcessedImage original) throws IOException {
+        return render(original, AVATAR_WIDTHS, true);
+    }
+
+
+    public RenderedImages renderBanner(ProcessedImage original) throws IOException {
+        return render(original, BANNER_WIDTHS, false);
+    }
+
+
+    // replace the user's avatar with the rendered image and its variants
+    @Transactional
+    public void applyAvatar(User user, String name, RenderedImages images) {
+        user.setAvatarName(name);
+        user.setAvatarType(images.getOriginal().getContentType());
+        user.setAvatarHash(images.getOriginal().getHash());
+        storeImages(user, UserImage.Kind.AVATAR, images);
+    }
+
+
+    @Transactional
+    public void applyBanner(User user, String name, RenderedImages images) {
+        user.setBannerName(name);
+        user.setBannerType(images.getOriginal().getContentType());
+        user.setBannerHash(images.getOriginal().getHash());
+        storeImages(user, UserImage.Kind.BANNER, images);
+    }
+
+
+    /**
+     * Stores bytes that could not be decoded as the original without any variants, so legacy uploads keep
+     * being served as they were.
+     */
+    @Transactional
+    public void applyRaw(User user, UserImage.Kind kind, String contentType, byte[] data) {
+        String hash = Utils.hashImage(data);
+        if (kind == UserImage.Kind.AVATAR) {
+            user.setAvatarType(contentType);
+            user.setAvatarHash(hash);
+        } else {
+            user.setBannerType(contentType);
+            user.setBannerHash(hash);
+        }
+        userImageRepository.deleteByUserIdAndKind(user.getId(), kind);
+        userImageRepository.save(newImage(user, kind, UserImage.ORIGINAL_WIDTH, contentType, hash, data));
+    }
+
+
+    /**
+     * Hash of the current original. Variants are derived from it deterministically, so it also versions
+     * every rendition of the image.
+     */
+    public Optional<String> findVersion(Long userId, UserImage.Kind kind) {
+        return kind == UserImage.Kind.AVATAR
+                ? userRepository.findAvatarHashById(userId)
+                : userRepository.findBannerHashById(userId);
+    }
+
+
+    @Transactional
+    public Optional<ImageView> find(Long userId, UserImage.Kind kind, Integer width) {
+        if (width != null) {
+            List<ImageView> variants = userImageRepository.findVariants(userId, kind, width, PageRequest.of(0, 1));
+            if (!variants.isEmpty()) {
+                return Optional.of(variants.get(0));
+            }
+        }
+        // no variant wide enough, fall back to the original
+        return userImageRepository.findOriginal(userId, kind);
+    }
+
+
+    private RenderedImages render(ProcessedImage original, int[] widths, boolean square) throws IOException {
+        BufferedImage source = original.getImage();
+        if (square) {
+            int side = Math.min(source.getWidth(), source.getHeight());
+            source = source.getSubimage((source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        }
+
+        Map<Integer, ProcessedImage> variants = new LinkedHashMap<>();
+        for (int width : widths) {
+            // never upscale, a small original is stored as is under the larger widths
+            int targetWidth = Math.min(width, source.getWidth());
+            int targetHeight = Math.max(1, Math.round(source.getHeight() * (targetWidth / (float) source.getWidth())));
+            variants.put(width, encode(resize(source, targetWidth, targetHeight), original.getFormat()));
+        }
+        return new RenderedImages(original, variants);
+    }
+
+
+    private void storeImages(User user, UserImage.Kind kind, RenderedImages rendered) {
+        userImageRepository.deleteByUserIdAndKind(user.getId(), kind);
+
+        List<UserImage> images = new ArrayList<>();
+        ProcessedImage original = rendered.getOriginal();
+        images.add(newImage(user, kind, UserImage.ORIGINAL_WIDTH, original.getContentType(), original.getHash(),
+                original.getData()));
+        rendered.getVariants().forEach((width, variant) ->
+                images.add(newImage(user, kind, width, variant.getContentType(), variant.getHash(), variant.getData())));
+        userImageRepository.saveAll(images);
+    }
+
+
+    private UserImage newImage(User user, UserImage.Kind kind, int width, String contentType, String hash, byte[] data) {
+        UserImage image = new UserImage();
+        image.setUser(user);
+        image.setKind(kind);
+        image.setWidth(width);
+        image.setContentType(contentType);
+        image.setHash(hash);
+        image.setData(data);
+        image.setCreatedTime(new Date());
+        return image;
+    }
+
+
+    private ProcessedImage encode(BufferedImage image, String format) throws IOException {
+        BufferedImage output = image;
+        if ("jpeg".equals(format) && image.getType() != BufferedImage.TYPE_INT_RGB) {
+            // the JPEG writer rejects alpha channels and indexed colour models
+            output = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = output.createGraphics();
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(output, format, out)) {
+            throw new IllegalArgumentException("No image writer for " + format);
+        }
+        byte[] data = out.toByteArray();
+        return new ProcessedImage(output, format, "image/" + format, data, Utils.hashImage(data));
+    }
+
+
+    // halve repeatedly before the final bilinear pass, a single large step aliases badly
+    private BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = step;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    public static class ProcessedImage {
+
+        private BufferedImage image;
+
+        private String format;
+
+        private String contentType;
+
+        private byte[] data;
+
+        private String hash;
+    }
+
+
+    // the sanitized image and its variants by width, ready to be stored
+    @Data
+    @AllArgsConstructor
+    public static class RenderedImages {
+
+        private ProcessedImage original;
+
+        private Map<Integer, ProcessedImage> variants;
+    }
+}
@@ -0,0 +1,53 @@
+package backend.service;
+
+import backend.entity.MailOutbox;
+import backend.repository.MailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.Date;
+import java.util.Optional;
+
+@Service
+public class MailOutboxService {
+
+    public static final String RESET_PASSWORD = "RESET_PASSWORD";
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Value("${meet.mail.dedup-window-ms:60000}")
+    private long dedupWindowMs;
+
+
+    /**
+     * Queues a mail in the caller's transaction. A pending mail of the same kind to the same user is
+     * replaced rather than duplicated, and a repeat within {@code meet.mail.dedup-window-ms} of a sent one
+     * is dropped.
+     */
+    @Transactional
+    public void enqueue(Long userId, String kind, String recipient, String subject, String body) {
+        Date now = new Date();
+        if (mailOutboxRepository.existsByUserIdAndKindAndStatusAndSentTimeAfter(userId, kind, MailOutbox.Status.SENT,
+                new Date(now.getTime() - dedupWindowMs))) {
+            return;
+        }
+
+        // a leased mail may be on the wire already, it is left alone and a new one queued
+        Optional<MailOutbox> pending = mailOutboxRepository.findFirstByUserIdAndKindAndStatusAndLeaseOwnerIsNull(userId,
+                kind, MailOutbox.Status.PENDING);
+        MailOutbox mail = pending.orElseGet(MailOutbox::new);
+        if (pending.isEmpty()) {
+            mail.setUserId(userId);
+            mail.setKind(kind);
+            mail.setCreatedTime(now);
+            mail.setNextAttemptTime(now);
+        }
+        mail.setRecipient(recipient);
+        mail.setSubject(subject);
+        mail.setBody(body);
+        mailOutboxRepository.save(mail);
+    }
+}
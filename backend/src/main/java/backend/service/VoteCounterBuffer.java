@@ -0,0 +1,187 @@
+package backend.service;
+
+import backend.util.HotScore;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind for the up vote counters, enabled with {@code meet.votes.write-behind}. Vote rows are still
+ * written by the request, the per post delta is summed in memory and every {@code meet.votes.flush-interval-ms}
+ * the post's up_votes, hot_score and the author's up_votes_received move once per post in a batch. Under a
+ * burst of votes on one post the requests no longer queue on that post's row lock.
+ *
+ * The flush runs on its own thread, so the lag is one interval plus the flush itself, whatever the scheduled
+ * jobs are doing; {@link #stalenessMs()} reports it. Pending deltas are lost if the process dies without
+ * shutting down, CounterReconciliationJob and UserStatsReconciliationJob repair that. They can not see the
+ * deltas still pending here or on another node, so they leave alone every post voted on within
+ * {@code meet.votes.settle-ms}, see {@link #settledBefore()}.
+ */
+@Component
+@Log4j2
+public class VoteCounterBuffer {
+
+    public static final String STALENESS_HEADER = "X-Counter-Staleness-Ms";
+
+    // each add and each take is atomic per post, so a delta is either flushed or still pending, never both
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    private volatile long lastFlushed = System.currentTimeMillis();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meet.votes.write-behind:false}")
+    private boolean enabled;
+
+    @Value("${meet.votes.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${meet.votes.settle-ms:60000}")
+    private long settleMs;
+
+    private ScheduledExecutorService flusher;
+
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        // not on the shared scheduler, a slow job there would hold the counters back
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(flushIntervalMs + 10000, TimeUnit.MILLISECONDS);
+        }
+        flush();
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Queues an up vote delta for a post. Inside a transaction the delta is only queued once it commits.
+     */
+    public void add(Long blogId, int delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accumulate(blogId, delta);
+                }
+            });
+        } else {
+            accumulate(blogId, delta);
+        }
+    }
+
+
+    /**
+     * Milliseconds since the last successful flush, an upper bound on how old the stored counters are.
+     */
+    public long stalenessMs() {
+        return System.currentTimeMillis() - lastFlushed;
+    }
+
+
+    /**
+     * Votes cast or withdrawn after this may still have a delta pending on some node. A recount of the
+     * written behind counters skips the posts that have such a vote, their counter would otherwise take the
+     * vote from the recount and again from the flush.
+     */
+    public Timestamp settledBefore() {
+        return new Timestamp(System.currentTimeMillis() - settleMs);
+    }
+
+
+    public synchronized void flush() {
+        long started = System.currentTimeMillis();
+        List<Object[]> deltas = new ArrayList<>();
+        for (Long blogId : pending.keySet()) {
+            // reads and drops the delta in one step, a later add starts a new one
+            Long delta = pending.remove(blogId);
+            if (delta != null && delta != 0) {
+                deltas.add(new Object[]{delta, blogId});
+            }
+        }
+        if (deltas.isEmpty()) {
+            lastFlushed = started;
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> write(deltas));
+            lastFlushed = started;
+            log.debug("Flushed up vote deltas of {} posts", deltas.size());
+        } catch (RuntimeException e) {
+            // keep the deltas for the next attempt
+            deltas.forEach(d -> accumulate((Long) d[1], (Long) d[0]));
+            log.error(e.getMessage(), e);
+        }
+    }
+
+
+    private void accumulate(Long blogId, long delta) {
+        pending.merge(blogId, delta, Long::sum);
+    }
+
+
+    private void write(List<Object[]> deltas) {
+        jdbcTemplate.batchUpdate("UPDATE blogs SET up_votes = up_votes + ? WHERE id = ?", deltas);
+        jdbcTemplate.batchUpdate("UPDATE user_stats SET up_votes_received = up_votes_received + ? " +
+                "WHERE user_id = (SELECT b.user_id FROM blogs b WHERE b.id = ?)", deltas);
+
+        List<Long> ids = deltas.stream().map(d -> (Long) d[1]).toList();
+        long now = System.currentTimeMillis();
+        List<Object[]> scores = new ArrayList<>();
+        namedParameterJdbcTemplate.query("SELECT id, up_votes, down_votes, created_time FROM blogs WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    double score = HotScore.compute(rs.getInt(2), rs.getInt(3), rs.getTimestamp(4), now);
+                    scores.add(new Object[]{score, rs.getLong(1)});
+                });
+        jdbcTemplate.batchUpdate("UPDATE blogs SET hot_score = ? WHERE id = ?", scores);
+    }
+}
@@ -3,10 +3,13 @@ package backend.specification;
 import backend.entity.Blog;
 import backend.entity.Category;
 import backend.entity.Tag;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import java.util.Collection;
 
 public class BlogSpecification {
     public static Specification<Blog> hasCategory(String categoryTitle) {
@@ -33,23 +36,31 @@ public class BlogSpecification {
     }
 
 
-    public static Specification<Blog> containsTitle(String title) {
-        return ((root, query, criteriaBuilder) -> {
-            if (title == null || title.isEmpty()) {
-                return null;
-            }
-            return criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), "%" + title.toLowerCase() + "%");
-        });
+    public static Specification<Blog> hasAuthor(Long userId) {
+        return ((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("user").get("id"), userId));
+    }
+
+
+    public static Specification<Blog> idIn(Collection<Long> ids) {
+        return ((root, query, criteriaBuilder) -> root.get("id").in(ids));
     }
 
 
-    public static Specification<Blog> hasAuthor(String author) {
+    // keyset predicate: rows strictly after (value, id) in the given direction. The OR alone is not an index
+    // condition, the redundant bound on the sort key lets the planner seek to the cursor instead of filtering
+    public static <T extends Comparable<? super T>> Specification<Blog> after(String property, T value, Long id,
+                                                                            Sort.Direction direction) {
         return ((root, query, criteriaBuilder) -> {
-            if (author == null || author.isEmpty()) {
-                return null;
+            Path<T> sortKey = root.get(property);
+            Path<Long> blogId = root.get("id");
+            if (direction.isDescending()) {
+                return criteriaBuilder.and(criteriaBuilder.lessThanOrEqualTo(sortKey, value),
+                        criteriaBuilder.or(criteriaBuilder.lessThan(sortKey, value),
+                                criteriaBuilder.and(criteriaBuilder.equal(sortKey, value), criteriaBuilder.lessThan(blogId, id))));
             }
-            Join<Object, Object> userJoin = root.join("user");
-            return criteriaBuilder.like(criteriaBuilder.lower(userJoin.get("username")), "%" + author.toLowerCase() + "%");
+            return criteriaBuilder.and(criteriaBuilder.greaterThanOrEqualTo(sortKey, value),
+                    criteriaBuilder.or(criteriaBuilder.greaterThan(sortKey, value),
+                            criteriaBuilder.and(criteriaBuilder.equal(sortKey, value), criteriaBuilder.greaterThan(blogId, id))));
         });
     }
 }
@@ -5,4 +5,11 @@ public class Constants {
     public static final Long JWT_TOKEN_EXPIRATION_TIME = 86400L * 7;
 
     public static final String JWT_SECRET = "secret";
+
+    public static final String CATEGORIES_CACHE = "categories";
+
+    public static final String TAGS_CACHE = "tags";
+
+    // ids reserved per sequence call, the sequences themselves must increment by the same amount
+    public static final int ID_ALLOCATION_SIZE = 50;
 }
@@ -0,0 +1,45 @@
+package backend.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination token. Carries the sort property, the sort key of the last row that was
+ * returned and its id as a tie breaker, encoded as URL safe base64 so clients treat it as a black box.
+ */
+@Data
+@AllArgsConstructor
+public class Cursor {
+
+    private static final String SEPARATOR = "|";
+
+    private String sortBy;
+
+    private String value;
+
+    private Long id;
+
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    public static Cursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Cursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // also covers NumberFormatException and malformed base64
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
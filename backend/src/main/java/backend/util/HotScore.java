@@ -0,0 +1,31 @@
+package backend.util;
+
+import java.util.Date;
+
+/**
+ * Time decayed ranking in the style of Hacker News: net votes divided by a power of the post's age, so a
+ * post has to keep collecting votes to stay on top.
+ */
+public class HotScore {
+
+    // higher values make posts fall off faster
+    public static final double GRAVITY = 1.8;
+
+    private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+
+    public static double compute(int upVotes, int downVotes, Date createdTime, long now) {
+        double ageHours = Math.max(0, now - createdTime.getTime()) / MILLIS_PER_HOUR;
+        return (upVotes - downVotes) / Math.pow(ageHours + 2, GRAVITY);
+    }
+
+
+    /**
+     * {@link #compute} as a PostgreSQL expression over the given columns. The age is taken from LOCALTIMESTAMP,
+     * which shares the session time zone with created_time.
+     */
+    public static String sql(String netVotes, String createdTime) {
+        return "(" + netVotes + ") / power(greatest(extract(epoch FROM LOCALTIMESTAMP - " + createdTime + "), 0)"
+                + " / 3600 + 2, " + GRAVITY + ")";
+    }
+}
@@ -0,0 +1,54 @@
+package backend.util;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Java port of the pg_trgm similarity functions, used where the extension is not available.
+ */
+public class Trigrams {
+
+    // every word is padded with two spaces in front and one behind, as pg_trgm does
+    public static Set<String> of(String text) {
+        Set<String> trigrams = new HashSet<>();
+        if (text == null) {
+            return trigrams;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+
+    // shared trigrams over all distinct trigrams, like similarity()
+    public static double similarity(String a, String b) {
+        Set<String> first = of(a);
+        Set<String> second = of(b);
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+        Set<String> shared = new HashSet<>(first);
+        shared.retainAll(second);
+        return (double) shared.size() / (first.size() + second.size() - shared.size());
+    }
+
+
+    // share of the query trigrams found in the text, close to word_similarity() without its extent search
+    public static double wordSimilarity(String query, String text) {
+        Set<String> wanted = of(query);
+        if (wanted.isEmpty()) {
+            return 0;
+        }
+        Set<String> shared = new HashSet<>(wanted);
+        shared.retainAll(of(text));
+        return (double) shared.size() / wanted.size();
+    }
+}
@@ -1,56 +1,117 @@
 package backend.util;
 
+import backend.entity.Blog;
 import backend.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.SignatureException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Base64;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Utils {
 
     private static final String SECRET_KEY = "your-secret-key";
 
-    public static User getImageData(User user) {
-        if (user.getAvatarBlob() != null) {
-            String base64Image = Base64.getEncoder().encodeToString(user.getAvatarBlob());
-            user.setAvatarData("data:" + user.getAvatarType() + ";base64," + base64Image);
+    private static final int EXCERPT_LENGTH = 200;
+
+    private static final int WORDS_PER_MINUTE = 200;
+
+    // longer sources are inlined data URIs, which must not be copied into the list payload
+    private static final int MAX_COVER_IMAGE_LENGTH = 2048;
+
+    private static final Pattern IMG_SRC = Pattern.compile("<img[^>]*\\ssrc\\s*=\\s*[\"']([^\"']+)[\"']",
+            Pattern.CASE_INSENSITIVE);
+
+    // versioned, cacheable URL of the user's avatar at the given width, null when the user has none
+    public static String getAvatarUrl(Long userId, String avatarHash, int width) {
+        return getImageUrl(userId, "avatar", avatarHash, width);
+    }
+
+    public static String getBannerUrl(Long userId, String bannerHash, int width) {
+        return getImageUrl(userId, "banner", bannerHash, width);
+    }
+
+    private static String getImageUrl(Long userId, String kind, String hash, int width) {
+        if (hash == null) {
+            return null;
         }
-        return user;
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/users/{id}/" + kind)
+                .queryParam("size", width)
+                .queryParam("v", hash)
+                .buildAndExpand(userId)
+                .toUriString();
+    }
+
+    public static String hashImage(byte[] data) {
+        return hashContent(data);
     }
 
-    public static User getBannerDate(User user) {
-        if (user.getBannerBlob() != null) {
-            String base64Image = Base64.getEncoder().encodeToString(user.getBannerBlob());
-            user.setBannerData("data:" + user.getBannerType() + ";base64," + base64Image);
+    // the first half of a SHA-256 digest, enough to tell versions apart in URLs and ETags
+    public static String hashContent(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return user;
     }
 
-    public static String generateVerificationCode() {
-        return String.valueOf((int)(Math.random() * 900000) + 100000);
+    // derive excerpt, reading time and cover image from the post HTML
+    public static Blog applyContentSummary(Blog blog) {
+        String text = htmlToPlainText(blog.getContent());
+        blog.setExcerpt(excerpt(text));
+        int words = text.isEmpty() ? 0 : text.split(" ").length;
+        blog.setReadingTime(Math.max(1, (words + WORDS_PER_MINUTE - 1) / WORDS_PER_MINUTE));
+
+        String coverImage = null;
+        if (blog.getContent() != null) {
+            Matcher matcher = IMG_SRC.matcher(blog.getContent());
+            if (matcher.find() && matcher.group(1).length() <= MAX_COVER_IMAGE_LENGTH
+                    && !matcher.group(1).startsWith("data:")) {
+                coverImage = matcher.group(1);
+            }
+        }
+        blog.setCoverImage(coverImage);
+        return blog;
     }
 
-    public static byte[] fetchImageAsByteArray(String url) throws IOException {
-        try (InputStream in = new URL(url).openStream()) {
-            return in.readAllBytes();
+    public static String htmlToPlainText(String html) {
+        if (html == null) {
+            return "";
         }
+        String text = html.replaceAll("(?is)<(script|style)[^>]*>.*?</\\1>", " ")
+                .replaceAll("<[^>]*>", " ")
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&amp;", "&");
+        return text.replaceAll("\\s+", " ").trim();
     }
 
-    public static String getFileNameFromUrl(String url) {
-        return url.substring(url.lastIndexOf("/") + 1);
+    private static String excerpt(String text) {
+        if (text.length() <= EXCERPT_LENGTH) {
+            return text;
+        }
+        int end = text.lastIndexOf(' ', EXCERPT_LENGTH);
+        return text.substring(0, end > 0 ? end : EXCERPT_LENGTH) + "...";
     }
 
-    public static String fetchImageType(String url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setRequestMethod("HEAD");
-        return connection.getContentType();
+    public static String generateVerificationCode() {
+        return String.valueOf((int)(Math.random() * 900000) + 100000);
+    }
+
+    public static String getFileNameFromUrl(String url) {
+        return url.substring(url.lastIndexOf("/") + 1);
     }
 
 
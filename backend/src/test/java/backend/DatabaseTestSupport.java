@@ -0,0 +1,110 @@
+package backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Base of the tests that run against the application context and its database. Every scheduled job is pushed
+ * out of the way, a test runs the ones it needs by hand. Users and posts created through the helpers are
+ * deleted after each test, latest first, together with the rows that hang off them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "meet.comments.backfill-initial-delay-ms=3600000",
+        "meet.counters.reconcile-initial-delay-ms=3600000",
+        "meet.excerpts.backfill-initial-delay-ms=3600000",
+        "meet.feed.prune-interval-ms=3600000",
+        "meet.hot.refresh-initial-delay-ms=3600000",
+        "meet.images.migrate-initial-delay-ms=3600000",
+        "meet.mail.dispatch-initial-delay-ms=3600000",
+        "meet.mail.prune-interval-ms=3600000",
+        "meet.search.catch-up-interval-ms=3600000",
+        "meet.suggest.rebuild-interval-ms=3600000",
+        "meet.user-stats.reconcile-initial-delay-ms=3600000",
+        "meet.votes.flush-interval-ms=3600000"
+})
+public abstract class DatabaseTestSupport {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+
+    private final Deque<Runnable> cleanUps = new ArrayDeque<>();
+
+
+    /**
+     * Runs the clean ups registered so far, latest first. Called after every test, and earlier by tests
+     * that have to do something once their rows are gone.
+     */
+    @AfterEach
+    protected void deleteCreatedRows() {
+        while (!cleanUps.isEmpty()) {
+            cleanUps.pop().run();
+        }
+    }
+
+
+    // the pool does not auto-commit, every statement runs in a transaction of its own
+    protected void update(String sql, Object... args) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.update(sql, args));
+    }
+
+
+    // deleted after the test, before everything registered earlier
+    protected void cleanUp(String sql, Object... args) {
+        cleanUps.push(() -> update(sql, args));
+    }
+
+
+    protected void insertUser(long id, String username) {
+        update("INSERT INTO users (id, username, email, created_time) VALUES (?, ?, ?, LOCALTIMESTAMP)",
+                id, username, username + "@example.com");
+        cleanUps.push(() -> {
+            update("DELETE FROM timeline_entries WHERE user_id = ?", id);
+            update("DELETE FROM votes WHERE user_id = ?", id);
+            update("DELETE FROM user_following WHERE user_id = ? OR following_user_id = ?", id, id);
+            update("DELETE FROM user_tags WHERE user_id = ?", id);
+            update("DELETE FROM user_categories WHERE user_id = ?", id);
+            update("DELETE FROM user_roles WHERE user_id = ?", id);
+            update("DELETE FROM user_images WHERE user_id = ?", id);
+            update("DELETE FROM verification WHERE user_id = ?", id);
+            update("DELETE FROM user_stats WHERE user_id = ?", id);
+            update("DELETE FROM users WHERE id = ?", id);
+        });
+    }
+
+
+    // no content, it is a large object on PostgreSQL
+    protected void insertPost(long id, String title, long authorId) {
+        update("INSERT INTO blogs (id, title, user_id, created_time) VALUES (?, ?, ?, LOCALTIMESTAMP)", id, title, authorId);
+        cleanUpPost(id);
+    }
+
+
+    // for posts inserted with columns of their own
+    protected void cleanUpPost(long id) {
+        cleanUps.push(() -> {
+            update("DELETE FROM timeline_entries WHERE blog_id = ?", id);
+            update("DELETE FROM votes WHERE blog_id = ? OR comment_id IN (SELECT c.id FROM comments c WHERE c.blog_id = ?)",
+                    id, id);
+            // H2 checks the parent reference row by row
+            update("UPDATE comments SET parent_comment_id = NULL WHERE blog_id = ?", id);
+            update("DELETE FROM comments WHERE blog_id = ?", id);
+            update("DELETE FROM blog_tags WHERE blog_id = ?", id);
+            update("DELETE FROM blog_categories WHERE blog_id = ?", id);
+            update("DELETE FROM blogs WHERE id = ?", id);
+        });
+    }
+}
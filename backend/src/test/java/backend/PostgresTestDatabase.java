@@ -0,0 +1,80 @@
+package backend;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A real PostgreSQL server for the tests of the PostgreSQL only code paths, which H2 can not run. The server
+ * is started from the embedded binaries once per test run, every caller gets a database of its own.
+ */
+public final class PostgresTestDatabase {
+
+    private static EmbeddedPostgres server;
+
+
+    private PostgresTestDatabase() {
+    }
+
+
+    /**
+     * Creates the database if needed and points the Spring context at it, call from a
+     * {@code @DynamicPropertySource} method.
+     */
+    public static void register(DynamicPropertyRegistry registry, String database) {
+        String url = url(database);
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+
+    /**
+     * JDBC url of a fresh or previously created database, with the same driver settings as production.
+     */
+    public static synchronized String url(String database) {
+        JdbcTemplate admin = new JdbcTemplate(server().getPostgresDatabase());
+        Integer exists = admin.queryForObject("SELECT count(*) FROM pg_database WHERE datname = ?", Integer.class, database);
+        if (exists == null || exists == 0) {
+            admin.execute("CREATE DATABASE " + database);
+        }
+        return server().getJdbcUrl("postgres", database) + "&reWriteBatchedInserts=true";
+    }
+
+
+    /**
+     * An empty database, dropped and created again if it exists, for tests that run without a Spring context.
+     */
+    public static synchronized DataSource emptyDataSource(String database) {
+        JdbcTemplate admin = new JdbcTemplate(server().getPostgresDatabase());
+        admin.execute("DROP DATABASE IF EXISTS " + database);
+        admin.execute("CREATE DATABASE " + database);
+        return new DriverManagerDataSource(server().getJdbcUrl("postgres", database));
+    }
+
+
+    private static EmbeddedPostgres server() {
+        if (server == null) {
+            try {
+                server = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                    // the process is going away either way
+                }
+            }));
+        }
+        return server;
+    }
+}
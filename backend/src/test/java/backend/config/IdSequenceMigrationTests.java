@@ -0,0 +1,94 @@
+package backend.config;
+
+import backend.PostgresTestDatabase;
+import backend.util.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSequenceMigrationTests {
+
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+
+    @BeforeEach
+    void createDatabase() {
+        dataSource = PostgresTestDatabase.emptyDataSource("id_sequence_migration");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // as the identity columns left them, a sequence per table that increments by one
+        jdbcTemplate.execute("CREATE TABLE blogs (id bigserial PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE users (id bigserial PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE tags (id bigserial PRIMARY KEY)");
+    }
+
+
+    @Test
+    void movesPastTheHighestId() throws Exception {
+        jdbcTemplate.update("INSERT INTO blogs (id) SELECT generate_series(1, 120)");
+
+        migrate();
+
+        assertEquals(Constants.ID_ALLOCATION_SIZE, increment("blogs_id_seq"));
+        // the pooled optimizer hands out the block that ends at the value it reads
+        long next = nextval("blogs_id_seq");
+        assertEquals(120 + Constants.ID_ALLOCATION_SIZE, next);
+        assertTrue(next - Constants.ID_ALLOCATION_SIZE + 1 > 120);
+    }
+
+
+    @Test
+    void startsEmptyTablesAtTheBottom() throws Exception {
+        migrate();
+
+        assertEquals(Constants.ID_ALLOCATION_SIZE, increment("users_id_seq"));
+        long next = nextval("users_id_seq");
+        assertEquals(1 + Constants.ID_ALLOCATION_SIZE, next);
+        assertTrue(next - Constants.ID_ALLOCATION_SIZE + 1 > 0);
+    }
+
+
+    @Test
+    void neverMovesTheSequenceBackwards() throws Exception {
+        // rows were deleted after the sequence handed out higher ids
+        jdbcTemplate.update("INSERT INTO tags (id) SELECT generate_series(1, 10)");
+        jdbcTemplate.queryForObject("SELECT setval('tags_id_seq', 500)", Long.class);
+
+        migrate();
+
+        assertEquals(500 + Constants.ID_ALLOCATION_SIZE, nextval("tags_id_seq"));
+    }
+
+
+    @Test
+    void leavesMigratedSequencesAlone() throws Exception {
+        jdbcTemplate.update("INSERT INTO blogs (id) SELECT generate_series(1, 120)");
+        migrate();
+        long first = nextval("blogs_id_seq");
+
+        migrate();
+
+        assertEquals(first + Constants.ID_ALLOCATION_SIZE, nextval("blogs_id_seq"));
+    }
+
+
+    private void migrate() throws Exception {
+        new IdSequenceMigration(dataSource, new DatabasePlatform(dataSource));
+    }
+
+
+    private int increment(String sequence) {
+        return jdbcTemplate.queryForObject("SELECT increment_by FROM pg_sequences WHERE sequencename = ?",
+                Integer.class, sequence);
+    }
+
+
+    private long nextval(String sequence) {
+        return jdbcTemplate.queryForObject("SELECT nextval(?)", Long.class, sequence);
+    }
+}
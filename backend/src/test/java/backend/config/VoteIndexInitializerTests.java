@@ -0,0 +1,56 @@
+package backend.config;
+
+import backend.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoteIndexInitializerTests {
+
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+
+    @BeforeEach
+    void createDatabase() {
+        dataSource = PostgresTestDatabase.emptyDataSource("vote_index_initializer");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+
+    @Test
+    void leavesNewDatabasesToHibernate() throws Exception {
+        new VoteIndexInitializer(dataSource, new DatabasePlatform(dataSource));
+
+        assertFalse(jdbcTemplate.queryForObject("SELECT to_regclass('votes') IS NOT NULL", Boolean.class));
+    }
+
+
+    @Test
+    void removesDuplicatesAndCreatesTheIndexes() throws Exception {
+        // as the read-then-insert toggle left it
+        jdbcTemplate.execute("CREATE TABLE votes (id bigint PRIMARY KEY, user_id bigint NOT NULL, blog_id bigint, " +
+                "comment_id bigint, up_vote boolean, status boolean)");
+        jdbcTemplate.update("INSERT INTO votes VALUES (1, 1, 10, NULL, true, true), (2, 1, 10, NULL, true, false), " +
+                "(3, 2, 10, NULL, true, true), (4, 1, NULL, 20, true, true), (5, 1, NULL, 20, false, true), " +
+                "(6, 1, NULL, 21, true, true)");
+
+        new VoteIndexInitializer(dataSource, new DatabasePlatform(dataSource));
+
+        assertEquals(List.of(2L, 3L, 5L, 6L), jdbcTemplate.queryForList("SELECT id FROM votes ORDER BY id", Long.class));
+        assertEquals(List.of("uk_votes_user_blog", "uk_votes_user_comment"), jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'votes' AND indexname LIKE 'uk_%' ORDER BY 1", String.class));
+        assertThrows(RuntimeException.class,
+                () -> jdbcTemplate.update("INSERT INTO votes VALUES (7, 1, 10, NULL, true, true)"));
+
+        // already in place, a second start changes nothing
+        new VoteIndexInitializer(dataSource, new DatabasePlatform(dataSource));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM votes", Integer.class));
+    }
+}
@@ -0,0 +1,124 @@
+package backend.controller;
+
+import backend.DatabaseTestSupport;
+import backend.util.Cursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// keyset pagination of /posts, every listing is walked two posts at a time so that ties straddle a page break
+@AutoConfigureMockMvc
+class BlogControllerTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9651L;
+
+    private static final long TAG_ID = 9651L;
+
+    private static final String TAG = "paged";
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @BeforeEach
+    void createPosts() {
+        // first, so it is deleted after the posts that carry it
+        update("INSERT INTO tags (id, title) VALUES (?, ?)", TAG_ID, TAG);
+        cleanUp("DELETE FROM tags WHERE id = ?", TAG_ID);
+        insertUser(AUTHOR_ID, "paginator");
+        insertPost(9651L, 5, 1);
+        insertPost(9652L, 5, 1);
+        insertPost(9653L, 5, 2);
+        insertPost(9654L, 3, 2);
+        insertPost(9655L, 8, 3);
+        insertPost(9656L, 3, 0);
+    }
+
+
+    @Test
+    void pagesThroughTiesOnTheSortKeyInBothDirections() throws Exception {
+        assertEquals(List.of(9655L, 9653L, 9652L, 9651L, 9656L, 9654L), walk("upVotes", "desc"));
+        assertEquals(List.of(9654L, 9656L, 9651L, 9652L, 9653L, 9655L), walk("upVotes", "asc"));
+        assertEquals(List.of(9656L, 9652L, 9651L, 9654L, 9653L, 9655L), walk("createdTime", "desc"));
+        assertEquals(List.of(9655L, 9653L, 9654L, 9651L, 9652L, 9656L), walk("createdTime", "asc"));
+        // never refreshed, every hot score is zero and only the id orders them
+        assertEquals(List.of(9656L, 9655L, 9654L, 9653L, 9652L, 9651L), walk("hot", "desc"));
+        assertEquals(List.of(9651L, 9652L, 9653L, 9654L, 9655L, 9656L), walk("hot", "asc"));
+    }
+
+
+    @Test
+    void rejectsACursorOfAnotherSort() throws Exception {
+        String createdTime = new Cursor("createdTime", String.valueOf(NOW), 9651L).encode();
+
+        posts("upVotes", "desc", createdTime).andExpect(status().isBadRequest());
+        posts("hot", "desc", createdTime).andExpect(status().isBadRequest());
+    }
+
+
+    @Test
+    void rejectsMalformedCursors() throws Exception {
+        posts("createdTime", "desc", "not a cursor!").andExpect(status().isBadRequest());
+        posts("createdTime", "desc", encode("createdTime|" + NOW)).andExpect(status().isBadRequest());
+        posts("createdTime", "desc", encode("createdTime|yesterday|9651")).andExpect(status().isBadRequest());
+        posts("upVotes", "desc", encode("upVotes|5|last")).andExpect(status().isBadRequest());
+        posts("title", "desc", "").andExpect(status().isBadRequest());
+    }
+
+
+    private List<Long> walk(String sortBy, String sortDir) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String after = "";
+        for (int page = 0; page < 10; page++) {
+            JsonNode slice = objectMapper.readTree(posts(sortBy, sortDir, after).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            assertTrue(slice.get("content").size() <= 2);
+            slice.get("content").forEach(post -> ids.add(post.get("id").asLong()));
+            if (!slice.get("hasNext").asBoolean()) {
+                return ids;
+            }
+            after = slice.get("nextCursor").asText();
+        }
+        return fail("never reached the last slice of " + sortBy + " " + sortDir + ": " + ids);
+    }
+
+
+    private ResultActions posts(String sortBy, String sortDir, String after) throws Exception {
+        return mockMvc.perform(get("/api/v1/posts").param("tag", TAG).param("size", "2")
+                .param("sortBy", sortBy).param("sortDir", sortDir).param("after", after));
+    }
+
+
+    private void insertPost(long id, int upVotes, int hoursAgo) {
+        update("INSERT INTO blogs (id, title, user_id, up_votes, created_time) VALUES (?, ?, ?, ?, ?)",
+                id, "Post " + id, AUTHOR_ID, upVotes, new Timestamp(NOW - TimeUnit.HOURS.toMillis(hoursAgo)));
+        cleanUpPost(id);
+        update("INSERT INTO blog_tags (blog_id, tag_id) VALUES (?, ?)", id, TAG_ID);
+    }
+
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
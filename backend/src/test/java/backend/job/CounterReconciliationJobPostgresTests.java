@@ -0,0 +1,14 @@
+package backend.job;
+
+import backend.PostgresTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// the grouped repairs of CounterReconciliationJobTests against PostgreSQL
+class CounterReconciliationJobPostgresTests extends CounterReconciliationJobTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "counter_reconciliation");
+    }
+}
@@ -0,0 +1,83 @@
+package backend.job;
+
+import backend.DatabaseTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CounterReconciliationJobTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9501L;
+
+    private static final long VOTER_ID = 9502L;
+
+    // far enough apart to land in different ranges
+    private static final long FIRST_BLOG_ID = 9501L;
+
+    private static final long SECOND_BLOG_ID = 29501L;
+
+    private static final long COMMENT_ID = 9501L;
+
+    private static final long REPLY_ID = 9502L;
+
+    @Autowired
+    private CounterReconciliationJob counterReconciliationJob;
+
+
+    @BeforeEach
+    void createPosts() {
+        insertUser(AUTHOR_ID, "counted");
+        insertUser(VOTER_ID, "counter");
+        insertPost(FIRST_BLOG_ID, "First", AUTHOR_ID);
+        insertPost(SECOND_BLOG_ID, "Second", AUTHOR_ID);
+        update("INSERT INTO comments (id, blog_id, user_id, created_time) VALUES (?, ?, ?, LOCALTIMESTAMP)",
+                COMMENT_ID, SECOND_BLOG_ID, VOTER_ID);
+        update("INSERT INTO comments (id, blog_id, user_id, parent_comment_id, created_time) VALUES (?, ?, ?, ?, LOCALTIMESTAMP)",
+                REPLY_ID, SECOND_BLOG_ID, AUTHOR_ID, COMMENT_ID);
+        update("INSERT INTO votes (id, user_id, blog_id, up_vote, status, created_time) VALUES (9501, ?, ?, true, true, LOCALTIMESTAMP)",
+                VOTER_ID, SECOND_BLOG_ID);
+        update("INSERT INTO votes (id, user_id, comment_id, up_vote, status, created_time) VALUES (9502, ?, ?, false, true, LOCALTIMESTAMP)",
+                AUTHOR_ID, COMMENT_ID);
+    }
+
+
+    @Test
+    void repairsDriftedCountersInEveryRange() {
+        // inserted without going through the services, every counter starts at zero
+        update("UPDATE blogs SET up_votes = 3, comment_count = 7 WHERE id = ?", FIRST_BLOG_ID);
+
+        counterReconciliationJob.reconcile();
+
+        assertEquals(List.of(0, 0, 0), blogCounters(FIRST_BLOG_ID));
+        assertEquals(List.of(1, 0, 2), blogCounters(SECOND_BLOG_ID));
+        assertEquals(List.of(0, 1, 1), commentCounters(COMMENT_ID));
+        assertEquals(List.of(0, 0, 0), commentCounters(REPLY_ID));
+    }
+
+
+    @Test
+    void leavesCountersThatMatchAlone() {
+        counterReconciliationJob.reconcile();
+        update("UPDATE blogs SET up_votes = 1 WHERE id = ?", SECOND_BLOG_ID);
+
+        counterReconciliationJob.reconcile();
+
+        assertEquals(List.of(1, 0, 2), blogCounters(SECOND_BLOG_ID));
+    }
+
+
+    private List<Integer> blogCounters(long id) {
+        return jdbcTemplate.queryForObject("SELECT up_votes, down_votes, comment_count FROM blogs WHERE id = ?",
+                (rs, row) -> List.of(rs.getInt(1), rs.getInt(2), rs.getInt(3)), id);
+    }
+
+
+    private List<Integer> commentCounters(long id) {
+        return jdbcTemplate.queryForObject("SELECT up_votes, down_votes, comment_count FROM comments WHERE id = ?",
+                (rs, row) -> List.of(rs.getInt(1), rs.getInt(2), rs.getInt(3)), id);
+    }
+}
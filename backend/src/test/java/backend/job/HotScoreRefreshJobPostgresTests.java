@@ -0,0 +1,14 @@
+package backend.job;
+
+import backend.PostgresTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// the set-based refresh, which only runs on PostgreSQL
+class HotScoreRefreshJobPostgresTests extends HotScoreRefreshJobTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "hot_score_refresh");
+    }
+}
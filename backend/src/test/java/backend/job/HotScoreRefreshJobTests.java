@@ -0,0 +1,113 @@
+package backend.job;
+
+import backend.DatabaseTestSupport;
+import backend.dto.BlogListResponseDTO;
+import backend.dto.SliceResponseDTO;
+import backend.service.BlogService;
+import backend.util.HotScore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotScoreRefreshJobTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9901L;
+
+    private static final long TAG_ID = 9901L;
+
+    private static final String TAG = "hot-refresh";
+
+    private static final long FRESH_ID = 9901L;
+
+    private static final long MODEST_ID = 9902L;
+
+    private static final long STALE_ID = 9903L;
+
+    // far enough from the others to land in a range of its own
+    private static final long OLDER_ID = 29901L;
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private HotScoreRefreshJob hotScoreRefreshJob;
+
+    @Autowired
+    private BlogService blogService;
+
+
+    @BeforeEach
+    void createPosts() {
+        // first, so it is deleted after the posts that carry it
+        update("INSERT INTO tags (id, title) VALUES (?, ?)", TAG_ID, TAG);
+        cleanUp("DELETE FROM tags WHERE id = ?", TAG_ID);
+        insertUser(AUTHOR_ID, "hot");
+        insertPost(FRESH_ID, 10, TimeUnit.HOURS.toMillis(1));
+        insertPost(MODEST_ID, 3, TimeUnit.HOURS.toMillis(1));
+        insertPost(OLDER_ID, 10, TimeUnit.HOURS.toMillis(20));
+        insertPost(STALE_ID, 100, TimeUnit.DAYS.toMillis(20));
+        // left over from before the window passed it by
+        update("UPDATE blogs SET hot_score = 5 WHERE id = ?", STALE_ID);
+    }
+
+
+    @Test
+    void decaysScoresInsideTheWindowAndZeroesTheRest() {
+        hotScoreRefreshJob.refresh();
+
+        assertEquals(expected(10, TimeUnit.HOURS.toMillis(1)), hotScore(FRESH_ID), 1e-3);
+        assertEquals(expected(3, TimeUnit.HOURS.toMillis(1)), hotScore(MODEST_ID), 1e-3);
+        assertEquals(expected(10, TimeUnit.HOURS.toMillis(20)), hotScore(OLDER_ID), 1e-4);
+        assertEquals(0, hotScore(STALE_ID));
+    }
+
+
+    @Test
+    void sortsByHotScore() {
+        hotScoreRefreshJob.refresh();
+
+        List<Long> hot = List.of(FRESH_ID, MODEST_ID, OLDER_ID, STALE_ID);
+        assertEquals(hot, blogService.getAllBlogs(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "hotScore", "id")),
+                null, TAG).stream().map(BlogListResponseDTO::getId).collect(Collectors.toList()));
+
+        SliceResponseDTO<BlogListResponseDTO> first = blogService.getBlogSlice("", 2, null, TAG, "hotScore",
+                Sort.Direction.DESC);
+        assertTrue(first.isHasNext());
+        SliceResponseDTO<BlogListResponseDTO> second = blogService.getBlogSlice(first.getNextCursor(), 2, null, TAG,
+                "hotScore", Sort.Direction.DESC);
+        assertFalse(second.isHasNext());
+        assertEquals(hot.subList(0, 2), ids(first));
+        assertEquals(hot.subList(2, 4), ids(second));
+    }
+
+
+    private void insertPost(long id, int upVotes, long age) {
+        update("INSERT INTO blogs (id, title, user_id, up_votes, created_time) VALUES (?, ?, ?, ?, ?)",
+                id, "Post " + id, AUTHOR_ID, upVotes, new Timestamp(NOW - age));
+        cleanUpPost(id);
+        update("INSERT INTO blog_tags (blog_id, tag_id) VALUES (?, ?)", id, TAG_ID);
+    }
+
+
+    private double expected(int upVotes, long age) {
+        return HotScore.compute(upVotes, 0, new Timestamp(NOW - age), System.currentTimeMillis());
+    }
+
+
+    private double hotScore(long id) {
+        return jdbcTemplate.queryForObject("SELECT hot_score FROM blogs WHERE id = ?", Double.class, id);
+    }
+
+
+    private static List<Long> ids(SliceResponseDTO<BlogListResponseDTO> slice) {
+        return slice.getContent().stream().map(BlogListResponseDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,96 @@
+package backend.job;
+
+import backend.DatabaseTestSupport;
+import backend.entity.MailOutbox;
+import backend.repository.MailOutboxRepository;
+import backend.service.MailOutboxService;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailOutboxDispatcherTests extends DatabaseTestSupport {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private MailOutboxDispatcher mailOutboxDispatcher;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+
+    @BeforeEach
+    void clearOutbox() {
+        mailOutboxRepository.deleteAll();
+    }
+
+
+    @Test
+    void sendsQueuedMailOnce() throws Exception {
+        mailOutboxService.enqueue(1L, MailOutboxService.RESET_PASSWORD, "one@example.com", "Code", "123456");
+
+        mailOutboxDispatcher.dispatch();
+        mailOutboxDispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("Code", received[0].getSubject());
+        assertEquals("123456", GreenMailUtil.getBody(received[0]).trim());
+        assertEquals(MailOutbox.Status.SENT, mailOutboxRepository.findAll().get(0).getStatus());
+    }
+
+
+    @Test
+    void keepsOnePendingMailPerUserAndKind() {
+        mailOutboxService.enqueue(2L, MailOutboxService.RESET_PASSWORD, "two@example.com", "Code", "first");
+        mailOutboxService.enqueue(2L, MailOutboxService.RESET_PASSWORD, "two@example.com", "Code", "second");
+        mailOutboxDispatcher.dispatch();
+
+        // sent a moment ago, a repeat inside the dedup window is dropped
+        mailOutboxService.enqueue(2L, MailOutboxService.RESET_PASSWORD, "two@example.com", "Code", "third");
+        mailOutboxDispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("second", GreenMailUtil.getBody(received[0]).trim());
+        assertEquals(1, mailOutboxRepository.count());
+    }
+
+
+    @Test
+    void retriesWithBackoffWhenTheServerIsDown() {
+        greenMail.stop();
+        mailOutboxService.enqueue(3L, MailOutboxService.RESET_PASSWORD, "three@example.com", "Code", "654321");
+        mailOutboxDispatcher.dispatch();
+
+        MailOutbox failed = mailOutboxRepository.findAll().get(0);
+        assertEquals(MailOutbox.Status.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertNull(failed.getLeaseOwner());
+        assertTrue(failed.getNextAttemptTime().after(new Date()));
+
+        // not due yet
+        greenMail.start();
+        mailOutboxDispatcher.dispatch();
+        assertEquals(0, greenMail.getReceivedMessages().length);
+
+        failed.setNextAttemptTime(new Date());
+        mailOutboxRepository.save(failed);
+        mailOutboxDispatcher.dispatch();
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(MailOutbox.Status.SENT, mailOutboxRepository.findAll().get(0).getStatus());
+    }
+}
@@ -0,0 +1,14 @@
+package backend.job;
+
+import backend.PostgresTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// the grouped repairs of UserStatsReconciliationJobTests against PostgreSQL
+class UserStatsReconciliationJobPostgresTests extends UserStatsReconciliationJobTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "user_stats_reconciliation");
+    }
+}
@@ -0,0 +1,55 @@
+package backend.job;
+
+import backend.DatabaseTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStatsReconciliationJobTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9601L;
+
+    // far enough apart to land in different ranges
+    private static final long READER_ID = 29601L;
+
+    private static final long BLOG_ID = 9601L;
+
+    @Autowired
+    private UserStatsReconciliationJob userStatsReconciliationJob;
+
+
+    @BeforeEach
+    void createUsers() {
+        insertUser(AUTHOR_ID, "stated");
+        insertUser(READER_ID, "reader");
+        update("INSERT INTO user_stats (user_id, post_count) VALUES (?, 4)", AUTHOR_ID);
+        insertPost(BLOG_ID, "Counted", AUTHOR_ID);
+        update("UPDATE blogs SET up_votes = 1 WHERE id = ?", BLOG_ID);
+        update("INSERT INTO comments (id, blog_id, user_id, created_time) VALUES (9601, ?, ?, LOCALTIMESTAMP)", BLOG_ID, READER_ID);
+        update("INSERT INTO votes (id, user_id, blog_id, up_vote, status, created_time) VALUES (9601, ?, ?, true, true, LOCALTIMESTAMP)",
+                READER_ID, BLOG_ID);
+        update("INSERT INTO user_following (user_id, following_user_id) VALUES (?, ?)", READER_ID, AUTHOR_ID);
+    }
+
+
+    @Test
+    void createsMissingStatsAndRepairsDriftedOnes() {
+        userStatsReconciliationJob.reconcile();
+
+        // posts, comments, votes given, up votes received, followers, following
+        assertEquals(List.of(1, 0, 0, 1, 1, 0), stats(AUTHOR_ID));
+        assertEquals(List.of(0, 1, 1, 0, 0, 1), stats(READER_ID));
+    }
+
+
+    private List<Integer> stats(long userId) {
+        return jdbcTemplate.queryForObject("SELECT post_count, comment_count, votes_given, up_votes_received, " +
+                        "follower_count, following_count FROM user_stats WHERE user_id = ?",
+                (rs, row) -> List.of(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getInt(6)),
+                userId);
+    }
+}
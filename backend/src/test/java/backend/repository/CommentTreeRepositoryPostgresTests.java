@@ -0,0 +1,14 @@
+package backend.repository;
+
+import backend.PostgresTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// the cases of CommentTreeRepositoryTests against the "C" collated path index
+class CommentTreeRepositoryPostgresTests extends CommentTreeRepositoryTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "comment_tree");
+    }
+}
@@ -0,0 +1,71 @@
+package backend.repository;
+
+import backend.DatabaseTestSupport;
+import backend.entity.Comment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// CommentTreeRepositoryPostgresTests runs the same cases under the "C" collation
+class CommentTreeRepositoryTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9701L;
+
+    private static final long BLOG_ID = 9701L;
+
+    // 9701 > 9702 > 9704 > 9705 and 9701 > 9703, next to 9710 > 9711
+    private static final long THREAD_ID = 9701L;
+
+    private static final long OTHER_THREAD_ID = 9710L;
+
+    @Autowired
+    private CommentTreeRepository commentTreeRepository;
+
+
+    @BeforeEach
+    void createComments() {
+        insertUser(AUTHOR_ID, "threaded");
+        insertPost(BLOG_ID, "Threads", AUTHOR_ID);
+        insertComment(THREAD_ID, null, THREAD_ID);
+        insertComment(9702L, THREAD_ID, THREAD_ID, 9702L);
+        insertComment(9703L, THREAD_ID, THREAD_ID, 9703L);
+        insertComment(9704L, 9702L, THREAD_ID, 9702L, 9704L);
+        insertComment(9705L, 9704L, THREAD_ID, 9702L, 9704L, 9705L);
+        insertComment(OTHER_THREAD_ID, null, OTHER_THREAD_ID);
+        insertComment(9711L, OTHER_THREAD_ID, OTHER_THREAD_ID, 9711L);
+    }
+
+
+    @Test
+    void returnsTheWholeSubtreeInThreadOrder() {
+        assertEquals(List.of(9702L, 9704L, 9705L, 9703L), commentTreeRepository.findDescendantIds(List.of(THREAD_ID), 5, 10));
+        assertEquals(List.of(9705L), commentTreeRepository.findDescendantIds(List.of(9704L), 5, 10));
+        assertEquals(List.of(9702L, 9704L, 9705L, 9703L, 9711L),
+                commentTreeRepository.findDescendantIds(List.of(THREAD_ID, OTHER_THREAD_ID), 5, 10));
+    }
+
+
+    @Test
+    void stopsAtTheDepthAndCapsTheRepliesPerComment() {
+        assertEquals(List.of(9702L, 9703L), commentTreeRepository.findDescendantIds(List.of(THREAD_ID), 1, 10));
+        assertEquals(List.of(9702L, 9704L), commentTreeRepository.findDescendantIds(List.of(THREAD_ID), 2, 1));
+    }
+
+
+    private void insertComment(Long id, Long parentId, Long... path) {
+        StringBuilder materialized = new StringBuilder();
+        for (Long segment : path) {
+            if (materialized.length() > 0) {
+                materialized.append(Comment.PATH_SEPARATOR);
+            }
+            materialized.append(Comment.pathSegment(segment));
+        }
+        update("INSERT INTO comments (id, blog_id, user_id, parent_comment_id, depth, path, created_time) " +
+                "VALUES (?, ?, ?, ?, ?, ?, LOCALTIMESTAMP)", id, BLOG_ID, AUTHOR_ID, parentId, path.length - 1,
+                materialized.toString());
+    }
+}
@@ -0,0 +1,14 @@
+package backend.repository;
+
+import backend.PostgresTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// the cases of FuzzySearchRepositoryTests against pg_trgm and the GIN indexes
+class FuzzySearchRepositoryPostgresTests extends FuzzySearchRepositoryTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "fuzzy_search");
+    }
+}
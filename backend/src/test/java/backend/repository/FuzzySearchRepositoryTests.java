@@ -0,0 +1,102 @@
+package backend.repository;
+
+import backend.DatabaseTestSupport;
+import backend.projection.UserMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the in-memory fallback, FuzzySearchRepositoryPostgresTests runs the same cases through pg_trgm
+class FuzzySearchRepositoryTests extends DatabaseTestSupport {
+
+    private static final long JOHN_ID = 9201L;
+
+    private static final long JON_ID = 9202L;
+
+    private static final long ALICE_ID = 9203L;
+
+    private static final long EXACT_POST_ID = 9201L;
+
+    private static final long TYPO_POST_ID = 9202L;
+
+    private static final long VACUUM_POST_ID = 9203L;
+
+    @Autowired
+    private FuzzySearchRepository fuzzySearchRepository;
+
+
+    @BeforeEach
+    void createPosts() {
+        insertUser(JOHN_ID, "johnsmith");
+        insertUser(JON_ID, "jonsmith");
+        insertUser(ALICE_ID, "alice");
+        insertPost(EXACT_POST_ID, "Tuning PostgreSQL autovacuum", JOHN_ID);
+        insertPost(TYPO_POST_ID, "Autovacum pitfalls", JOHN_ID);
+        insertPost(VACUUM_POST_ID, "Vacuum tuning notes", JON_ID);
+    }
+
+
+    @Test
+    void ranksUsersByNameAndDropsThoseBelowTheThreshold() {
+        List<UserMatch> matches = findUsers("johnsmith", 0.3);
+
+        assertEquals(List.of(JOHN_ID, JON_ID), matches.stream().map(UserMatch::getId).collect(Collectors.toList()));
+        assertEquals(1.0, matches.get(0).getSimilarity(), 1e-6);
+        // 7 of 12 trigrams in common
+        assertEquals(7.0 / 12, matches.get(1).getSimilarity(), 1e-6);
+        assertEquals(List.of(JOHN_ID), findUsers("johnsmith", 0.7).stream().map(UserMatch::getId)
+                .collect(Collectors.toList()));
+    }
+
+
+    @Test
+    void ranksPostsByTitleAndDropsThoseBelowTheThreshold() {
+        Page<Long> page = findBlogIds("autovacuum", 0.5, 0, 10);
+
+        assertEquals(List.of(EXACT_POST_ID, TYPO_POST_ID), page.getContent());
+        assertEquals(2, page.getTotalElements());
+        assertEquals(List.of(EXACT_POST_ID, TYPO_POST_ID, VACUUM_POST_ID), findBlogIds("autovacuum", 0.4, 0, 10).getContent());
+    }
+
+
+    @Test
+    void findsPostsByTheirAuthorsName() {
+        assertEquals(List.of(VACUUM_POST_ID), findBlogIds("jonsmith", 0.9, 0, 10).getContent());
+    }
+
+
+    @Test
+    void countsEveryMatchNotJustThePage() {
+        Page<Long> first = findBlogIds("autovacuum", 0.5, 0, 1);
+        Page<Long> second = findBlogIds("autovacuum", 0.5, 1, 1);
+        Page<Long> past = findBlogIds("autovacuum", 0.5, 5, 1);
+
+        assertEquals(List.of(EXACT_POST_ID), first.getContent());
+        assertEquals(List.of(TYPO_POST_ID), second.getContent());
+        assertTrue(past.getContent().isEmpty());
+        assertEquals(2, first.getTotalElements());
+        assertEquals(2, second.getTotalElements());
+        assertEquals(2, past.getTotalElements());
+    }
+
+
+    // the threshold is set per transaction on PostgreSQL
+    private List<UserMatch> findUsers(String term, double threshold) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                fuzzySearchRepository.findUsers(term, threshold, 10));
+    }
+
+
+    private Page<Long> findBlogIds(String term, double threshold, int page, int size) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                fuzzySearchRepository.findBlogIds(term, threshold, PageRequest.of(page, size)));
+    }
+}
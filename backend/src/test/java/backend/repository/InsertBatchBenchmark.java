@@ -0,0 +1,153 @@
+package backend.repository;
+
+import backend.PostgresTestDatabase;
+import backend.entity.Blog;
+import backend.entity.Comment;
+import backend.entity.User;
+import backend.entity.Vote;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Insert throughput of the sequence ids with JDBC batching and reWriteBatchedInserts against PostgreSQL,
+ * compared with the same inserts sent one statement per row. Skipped in the normal build, run with
+ * <pre>
+ * mvn test -Dtest=InsertBatchBenchmark -Dbenchmark=true [-Dbenchmark.rows=2000]
+ * </pre>
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InsertBatchBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2000);
+
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private VoteRepository voteRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "insert_batch_benchmark");
+    }
+
+
+    @Test
+    void insertThroughput() {
+        // the first round warms up the pool, the plans and the JIT
+        for (int round = 0; round < ROUNDS; round++) {
+            List<User> users = createUsers(round);
+            boolean report = round == ROUNDS - 1;
+
+            for (boolean batched : new boolean[]{false, true}) {
+                // a vote per user and post, each pass votes on a post of its own
+                Blog blog = createBlog(users.get(0));
+                measure(report, "votes", batched, users, user -> {
+                    Vote vote = new Vote();
+                    vote.setUser(user);
+                    vote.setBlog(blog);
+                    vote.setUpVote(true);
+                    vote.setStatus(true);
+                    vote.setCreatedTime(new Date());
+                    vote.setUpdatedTime(vote.getCreatedTime());
+                    return voteRepository.save(vote);
+                });
+                measure(report, "comments", batched, users, user -> {
+                    Comment comment = new Comment();
+                    comment.setUser(user);
+                    comment.setBlog(blog);
+                    comment.setContent("Benchmark comment");
+                    comment.setCreatedTime(new Date());
+                    return commentRepository.save(comment);
+                });
+            }
+        }
+    }
+
+
+    private List<User> createUsers(int round) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                User user = new User();
+                user.setUsername("bench" + round + "_" + i);
+                user.setEmail("bench" + round + "_" + i + "@example.com");
+                user.setCreatedTime(new Date());
+                users.add(user);
+            }
+            return userRepository.saveAll(users);
+        });
+    }
+
+
+    private Blog createBlog(User author) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Blog blog = new Blog();
+            blog.setTitle("Benchmark");
+            blog.setContent("Benchmark");
+            blog.setUser(author);
+            blog.setCreatedTime(new Date());
+            return blogRepository.save(blog);
+        });
+    }
+
+
+    private void measure(boolean report, String table, boolean batched, List<User> users, Function<User, ?> insert) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long started = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!batched) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+            }
+            users.forEach(insert::apply);
+        });
+        double ms = (System.nanoTime() - started) / 1e6;
+        if (report) {
+            System.out.printf("%-8s %-9s %d rows  %8.1f ms  %7.0f rows/s  %5d statements%n", table,
+                    batched ? "batched" : "per row", users.size(), ms, users.size() * 1000 / ms,
+                    statistics.getPrepareStatementCount());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package backend.search;
+
+import backend.DatabaseTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlogSearchIndexTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9101L;
+
+    @Autowired
+    private BlogSearchIndex blogSearchIndex;
+
+
+    @BeforeEach
+    void createPosts() throws Exception {
+        insertUser(AUTHOR_ID, "searcher");
+        insertPost(9101L, "Tuning PostgreSQL autovacuum");
+        insertPost(9102L, "Baking sourdough bread");
+        blogSearchIndex.rebuild();
+    }
+
+
+    // the index is shared with the other tests of this context
+    @AfterEach
+    void dropPosts() throws Exception {
+        deleteCreatedRows();
+        blogSearchIndex.rebuild();
+    }
+
+
+    @Test
+    void findsPostsByTitle() throws Exception {
+        assertEquals(List.of(9101L), ids(blogSearchIndex.search("autovacuum", 0, 10)));
+    }
+
+
+    @Test
+    void listsEveryPostNewestFirstWithoutATerm() throws Exception {
+        BlogSearchIndex.Hits hits = blogSearchIndex.search("", 0, 10);
+
+        assertEquals(List.of(9102L, 9101L), ids(hits));
+        assertEquals(2, hits.getTotal());
+    }
+
+
+    @Test
+    void catchesUpWithPostsCreatedElsewhere() throws Exception {
+        // as if created through another node, no event reaches this one
+        insertPost(9103L, "Sourdough starter basics");
+        assertEquals(List.of(9102L), ids(blogSearchIndex.search("sourdough", 0, 10)));
+
+        blogSearchIndex.catchUp();
+
+        assertEquals(List.of(9103L, 9102L), ids(blogSearchIndex.search("sourdough", 0, 10)));
+    }
+
+
+    private void insertPost(long id, String title) {
+        update("INSERT INTO blogs (id, title, content, user_id, created_time) VALUES (?, ?, '<p>Post</p>', ?, LOCALTIMESTAMP)",
+                id, title, AUTHOR_ID);
+        cleanUpPost(id);
+    }
+
+
+    private List<Long> ids(BlogSearchIndex.Hits hits) {
+        return hits.getHits().stream().map(BlogSearchIndex.Hit::getBlogId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,69 @@
+package backend.search;
+
+import backend.DatabaseTestSupport;
+import backend.dto.SuggestionDTO;
+import backend.event.BlogCreatedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// each test starts from a fresh index
+class SuggestIndexTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9401L;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+
+    @BeforeEach
+    @AfterEach
+    void rebuild() {
+        suggestIndex.rebuild();
+    }
+
+
+    @Test
+    void matchesPhrasesHoweverTheyAreSpaced() {
+        created(9401L, "Spring  Boot\tconnection pools");
+
+        assertEquals(List.of(9401L), postIds(suggestIndex.suggest("spring boot", 10)));
+        assertEquals(List.of(9401L), postIds(suggestIndex.suggest("  Boot   connection ", 10)));
+        assertTrue(postIds(suggestIndex.suggest("spring pools", 10)).isEmpty());
+    }
+
+
+    @Test
+    void stopsAddingPostsUntilTheNextRebuild() {
+        for (long id = 1; id <= 600; id++) {
+            created(9400L + id, "Capped post " + id);
+        }
+
+        assertEquals(500, postIds(suggestIndex.suggest("capped", 1000)).size());
+
+        suggestIndex.rebuild();
+        created(9401L, "Capped post again");
+
+        assertEquals(List.of(9401L), postIds(suggestIndex.suggest("capped", 1000)));
+    }
+
+
+    // no transaction is active, so the listener runs right away
+    private void created(Long blogId, String title) {
+        suggestIndex.onBlogCreated(new BlogCreatedEvent(blogId, AUTHOR_ID, "suggester", title, title,
+                List.of(), List.of(), new Date()));
+    }
+
+
+    private List<Long> postIds(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().filter(suggestion -> SuggestIndex.POST.equals(suggestion.getType()))
+                .map(SuggestionDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,141 @@
+package backend.security;
+
+import backend.DatabaseTestSupport;
+import backend.config.AsyncConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// one hashing thread and a queue of one, so two blocked tasks fill the executor
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "meet.auth.hashing-threads=1",
+        "meet.auth.hashing-queue=1",
+        "meet.auth.bcrypt-strength=5"
+})
+class BoundedPasswordEncoderTests extends DatabaseTestSupport {
+
+    private static final long USER_ID = 9451L;
+
+    private static final String USERNAME = "hasher";
+
+    private static final String PASSWORD = "correct horse";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier(AsyncConfig.PASSWORD_HASHING_EXECUTOR)
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+
+    @BeforeEach
+    void createUser() {
+        insertUser(USER_ID, USERNAME);
+    }
+
+
+    @Test
+    void rejectsLoginsOnceTheHashingQueueIsFull() throws Exception {
+        setPassword(new BCryptPasswordEncoder(5).encode(PASSWORD));
+        double rejected = meterRegistry.counter("meet.password.hashing.rejected").count();
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Callable<Boolean> blocked = () -> release.await(10, TimeUnit.SECONDS);
+            executor.submit(blocked);
+            executor.submit(blocked);
+            awaitFull();
+
+            assertThrows(TaskRejectedException.class, () -> passwordEncoder.matches(PASSWORD, password()));
+            login(PASSWORD).andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            assertEquals(rejected + 2, meterRegistry.counter("meet.password.hashing.rejected").count());
+        } finally {
+            release.countDown();
+        }
+
+        awaitIdle();
+        login(PASSWORD).andExpect(status().isOk());
+    }
+
+
+    @Test
+    void upgradesAWeakerHashOnLogin() throws Exception {
+        String weak = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        setPassword(weak);
+
+        login("wrong").andExpect(status().isUnauthorized());
+        assertEquals(weak, password());
+
+        login(PASSWORD).andExpect(status().isOk());
+        String upgraded = password();
+        assertTrue(upgraded.startsWith("$2a$05$"), upgraded);
+        assertTrue(new BCryptPasswordEncoder().matches(PASSWORD, upgraded));
+
+        // at the configured strength already, left alone
+        login(PASSWORD).andExpect(status().isOk());
+        assertEquals(upgraded, password());
+    }
+
+
+    private ResultActions login(String password) throws Exception {
+        return mockMvc.perform(post("/api/v1/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"account\": \"" + USERNAME + "\", \"password\": \"" + password + "\"}"));
+    }
+
+
+    private void setPassword(String hash) {
+        update("UPDATE users SET password = ? WHERE id = ?", hash, USER_ID);
+    }
+
+
+    private String password() {
+        return jdbcTemplate.queryForObject("SELECT password FROM users WHERE id = ?", String.class, USER_ID);
+    }
+
+
+    private void awaitFull() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getActiveCount() < 1 || executor.getThreadPoolExecutor().getQueue().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "executor never filled up");
+            Thread.sleep(10);
+        }
+    }
+
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getActiveCount() > 0 || !executor.getThreadPoolExecutor().getQueue().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "executor never drained");
+            Thread.sleep(10);
+        }
+    }
+}
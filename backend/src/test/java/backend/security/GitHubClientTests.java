@@ -0,0 +1,155 @@
+package backend.security;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "meet.http.read-timeout-ms=300",
+        "meet.http.breaker.sliding-window-size=4",
+        "meet.http.breaker.minimum-calls=4"
+})
+@ActiveProfiles("test")
+class GitHubClientTests {
+
+    private static final HttpServer server = start();
+
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    private static final AtomicReference<String> authorization = new AtomicReference<>();
+
+    // how long the mock takes before answering
+    private static volatile long delayMs;
+
+    @Autowired
+    private GitHubClient gitHubClient;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+
+    private static HttpServer start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/user/emails", exchange -> {
+                authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+                respond(exchange, "application/json",
+                        "[{\"email\":\"octo@example.com\",\"primary\":true,\"verified\":true}]".getBytes(StandardCharsets.UTF_8));
+            });
+            server.createContext("/avatar.png", exchange -> respond(exchange, "image/png", new byte[1024]));
+            // slow answers must not hold up the next request
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, String contentType, byte[] body)
+            throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException ignored) {
+            // the client gave up waiting
+        }
+    }
+
+    private static String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("meet.github.api-url", GitHubClientTests::baseUrl);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+
+    @BeforeEach
+    void reset() {
+        delayMs = 0;
+        requests.set(0);
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+
+    @Test
+    void fetchesEmailsWithTheAccessToken() {
+        List<GitHubEmail> emails = gitHubClient.fetchEmails("token");
+
+        assertEquals(1, emails.size());
+        assertEquals("octo@example.com", emails.get(0).getEmail());
+        assertTrue(emails.get(0).isPrimary());
+        assertEquals("Bearer token", authorization.get());
+    }
+
+
+    @Test
+    void timesOutOnASlowServer() {
+        delayMs = 2000;
+        long started = System.currentTimeMillis();
+
+        assertThrows(ResourceAccessException.class, () -> gitHubClient.fetchEmails("token"));
+        assertTrue(System.currentTimeMillis() - started < 1500);
+    }
+
+
+    @Test
+    void opensTheBreakerAfterRepeatedFailures() {
+        delayMs = 2000;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> gitHubClient.fetchEmails("token"));
+        }
+        int attempted = requests.get();
+
+        assertThrows(CallNotPermittedException.class, () -> gitHubClient.fetchEmails("token"));
+        assertEquals(attempted, requests.get());
+
+        // avatars have their own breaker
+        delayMs = 0;
+        assertEquals(1024, gitHubClient.fetchAvatar(baseUrl() + "/avatar.png", 4096).length);
+    }
+
+
+    @Test
+    void rejectsAvatarsOverTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> gitHubClient.fetchAvatar(baseUrl() + "/avatar.png", 512));
+        assertEquals(CircuitBreaker.State.CLOSED,
+                circuitBreakerRegistry.circuitBreaker(GitHubClient.AVATAR_BREAKER).getState());
+    }
+}
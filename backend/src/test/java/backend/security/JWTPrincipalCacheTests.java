@@ -0,0 +1,87 @@
+package backend.security;
+
+import backend.DatabaseTestSupport;
+import backend.event.PasswordChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JWTPrincipalCacheTests extends DatabaseTestSupport {
+
+    private static final long USER_ID = 9301L;
+
+    private static final String USERNAME = "resetter";
+
+    @Autowired
+    private JWTPrincipalCache jwtPrincipalCache;
+
+    @Autowired
+    private JWTGenerator jwtGenerator;
+
+
+    @BeforeEach
+    void createUser() {
+        insertUser(USER_ID, USERNAME);
+    }
+
+
+    // tokens issued in the same second are identical, the next test must not find this one cached
+    @AfterEach
+    void evictUser() {
+        jwtPrincipalCache.onPasswordChanged(new PasswordChangedEvent(USERNAME));
+    }
+
+
+    @Test
+    void rejectsTokensIssuedBeforeThePasswordChanged() {
+        String token = issueToken();
+        // as another node stores it, no event reaches this one
+        changePassword(System.currentTimeMillis() + 2000);
+
+        assertThrows(AuthenticationCredentialsNotFoundException.class, () -> jwtPrincipalCache.resolve(token));
+    }
+
+
+    @Test
+    void acceptsTokensIssuedAfterThePasswordChanged() {
+        changePassword(System.currentTimeMillis() - 2000);
+        String token = issueToken();
+
+        assertEquals(USERNAME, jwtPrincipalCache.resolve(token).getUsername());
+    }
+
+
+    @Test
+    void dropsCachedPrincipalsOnceThePasswordChanged() {
+        String token = issueToken();
+        jwtPrincipalCache.resolve(token);
+        changePassword(System.currentTimeMillis() + 2000);
+
+        // read through, a cached token is only checked again once it is loaded
+        assertEquals(USERNAME, jwtPrincipalCache.resolve(token).getUsername());
+
+        jwtPrincipalCache.onPasswordChanged(new PasswordChangedEvent(USERNAME));
+
+        assertThrows(AuthenticationCredentialsNotFoundException.class, () -> jwtPrincipalCache.resolve(token));
+    }
+
+
+    private String issueToken() {
+        return jwtGenerator.generateToken(new UsernamePasswordAuthenticationToken(USERNAME, "",
+                List.of(new SimpleGrantedAuthority("USER"))));
+    }
+
+
+    private void changePassword(long time) {
+        update("UPDATE users SET password_changed_time = ? WHERE id = ?", new Timestamp(time), USER_ID);
+    }
+}
@@ -0,0 +1,184 @@
+package backend.service;
+
+import backend.DatabaseTestSupport;
+import backend.dto.BlogListResponseDTO;
+import backend.dto.SliceResponseDTO;
+import backend.event.BlogCreatedEvent;
+import backend.util.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a pull threshold of one follower, so the popular author's posts are merged on read
+@TestPropertySource(properties = "meet.feed.pull-threshold=1")
+class FeedServiceTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9801L;
+
+    private static final long POPULAR_ID = 9802L;
+
+    private static final long READER_ID = 9803L;
+
+    private static final long TAG_ID = 9801L;
+
+    private static final long CATEGORY_ID = 9801L;
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private HomeService homeService;
+
+    @Autowired
+    private BlogService blogService;
+
+
+    @BeforeEach
+    void createUsers() {
+        // first, so they are deleted after the follows and posts that point at them
+        update("INSERT INTO tags (id, title) VALUES (?, 'feed-tag')", TAG_ID);
+        cleanUp("DELETE FROM tags WHERE id = ?", TAG_ID);
+        update("INSERT INTO categories (id, title) VALUES (?, 'feed-category')", CATEGORY_ID);
+        cleanUp("DELETE FROM categories WHERE id = ?", CATEGORY_ID);
+        insertUser(AUTHOR_ID, "author");
+        insertUser(POPULAR_ID, "popular");
+        insertUser(READER_ID, "reader");
+        update("INSERT INTO user_stats (user_id) VALUES (?)", AUTHOR_ID);
+        update("INSERT INTO user_stats (user_id, follower_count) VALUES (?, 2)", POPULAR_ID);
+        update("INSERT INTO user_stats (user_id) VALUES (?)", READER_ID);
+    }
+
+
+    @Test
+    void pushesPostsOfFollowedAuthors() {
+        follow(AUTHOR_ID);
+        post(9801L, AUTHOR_ID, 1);
+
+        assertEquals(List.of(9801L), entries());
+        assertEquals(List.of(9801L), ids(feedService.getFeed(READER_ID, null, 10)));
+    }
+
+
+    @Test
+    void pullsPostsOfPopularAuthors() {
+        follow(POPULAR_ID);
+        post(9801L, POPULAR_ID, 1);
+
+        assertEquals(List.of(), entries());
+        assertEquals(List.of(9801L), ids(feedService.getFeed(READER_ID, null, 10)));
+    }
+
+
+    @Test
+    void listsAPostThatArrivesBothWaysOnce() {
+        follow(POPULAR_ID);
+        update("INSERT INTO user_tags (user_id, tag_id) VALUES (?, ?)", READER_ID, TAG_ID);
+        post(9801L, POPULAR_ID, 1, "blog_tags", "tag_id", TAG_ID);
+
+        // pulled for the author's followers, pushed to the tag's
+        assertEquals(List.of(9801L), entries());
+        assertEquals(List.of(9801L), ids(feedService.getFeed(READER_ID, null, 10)));
+    }
+
+
+    @Test
+    void pagesNewestFirstAcrossBothSources() {
+        follow(AUTHOR_ID);
+        follow(POPULAR_ID);
+        post(9801L, AUTHOR_ID, 5);
+        post(9802L, POPULAR_ID, 4);
+        // the same time, the id breaks the tie
+        post(9803L, AUTHOR_ID, 3);
+        post(9804L, POPULAR_ID, 3);
+        post(9805L, AUTHOR_ID, 2);
+
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        SliceResponseDTO<BlogListResponseDTO> slice;
+        do {
+            slice = feedService.getFeed(READER_ID, after, 2);
+            assertTrue(slice.getSize() <= 2);
+            seen.addAll(ids(slice));
+            after = slice.getNextCursor();
+        } while (slice.isHasNext());
+
+        assertEquals(List.of(9805L, 9804L, 9803L, 9802L, 9801L), seen);
+    }
+
+
+    @Test
+    void rejectsACursorOfAnotherListing() {
+        String cursor = new Cursor("createdTime", String.valueOf(NOW), 1L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> feedService.getFeed(READER_ID, cursor, 10));
+    }
+
+
+    @Test
+    void unfollowingDropsOnlyPostsThatNoLongerReachTheReader() {
+        follow(AUTHOR_ID);
+        update("INSERT INTO user_tags (user_id, tag_id) VALUES (?, ?)", READER_ID, TAG_ID);
+        update("INSERT INTO user_categories (user_id, category_id) VALUES (?, ?)", READER_ID, CATEGORY_ID);
+        post(9801L, AUTHOR_ID, 3, "blog_tags", "tag_id", TAG_ID);
+        post(9802L, AUTHOR_ID, 2, "blog_categories", "category_id", CATEGORY_ID);
+        post(9803L, AUTHOR_ID, 1);
+        assertEquals(List.of(9803L, 9802L, 9801L), entries());
+
+        assertTrue(homeService.unFollowAUser(READER_ID, AUTHOR_ID));
+        assertEquals(List.of(9802L, 9801L), entries());
+
+        assertTrue(blogService.unFollowATag((int) TAG_ID, (int) READER_ID));
+        assertEquals(List.of(9802L), entries());
+
+        assertTrue(blogService.unFollowACategory((int) CATEGORY_ID, (int) READER_ID));
+        assertEquals(List.of(), entries());
+        assertEquals(List.of(), ids(feedService.getFeed(READER_ID, null, 10)));
+    }
+
+
+    private void follow(long authorId) {
+        update("INSERT INTO user_following (user_id, following_user_id) VALUES (?, ?)", READER_ID, authorId);
+    }
+
+
+    private void post(long id, long authorId, int minutesAgo) {
+        post(id, authorId, minutesAgo, null, null, 0);
+    }
+
+
+    // inserts the post, links it to one tag or category if given and fans it out on this thread
+    private void post(long id, long authorId, int minutesAgo, String joinTable, String joinColumn, long joinId) {
+        Timestamp createdTime = new Timestamp(NOW - minutesAgo * 60_000L);
+        update("INSERT INTO blogs (id, title, user_id, created_time) VALUES (?, ?, ?, ?)",
+                id, "Post " + id, authorId, createdTime);
+        cleanUpPost(id);
+        if (joinTable != null) {
+            update("INSERT INTO " + joinTable + " (blog_id, " + joinColumn + ") VALUES (?, ?)", id, joinId);
+        }
+        FeedService target = AopTestUtils.getUltimateTargetObject(feedService);
+        target.onBlogCreated(new BlogCreatedEvent(id, authorId, "author", "Post " + id, "", List.of(), List.of(),
+                createdTime));
+    }
+
+
+    private List<Long> entries() {
+        return jdbcTemplate.queryForList("SELECT blog_id FROM timeline_entries WHERE user_id = ?" +
+                " ORDER BY created_time DESC, blog_id DESC", Long.class, READER_ID);
+    }
+
+
+    private static List<Long> ids(SliceResponseDTO<BlogListResponseDTO> slice) {
+        return slice.getContent().stream().map(BlogListResponseDTO::getId).collect(Collectors.toList());
+    }
+}
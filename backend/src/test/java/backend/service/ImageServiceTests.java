@@ -0,0 +1,179 @@
+package backend.service;
+
+import backend.entity.UserImage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// images are generated in memory, a few pixels high so that wide ones stay cheap
+class ImageServiceTests {
+
+    private final ImageService imageService = new ImageService(DataSize.ofMegabytes(1), 4);
+
+
+    @Test
+    void rejectsBytesWithoutAnImageSignature() throws IOException {
+        IllegalArgumentException text = assertThrows(IllegalArgumentException.class,
+                () -> imageService.sanitize("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes()));
+        assertEquals("Unsupported image format", text.getMessage());
+        // a format ImageIO reads, but not one of the accepted ones
+        assertThrows(IllegalArgumentException.class, () -> imageService.sanitize(write(rgb(10, 10), "tiff")));
+        assertThrows(IllegalArgumentException.class, () -> imageService.sanitize(new byte[]{(byte) 0xFF, (byte) 0xD8}));
+    }
+
+
+    @Test
+    void rejectsCorruptImagesBehindAValidSignature() throws IOException {
+        byte[] png = write(rgb(10, 10), "png");
+        byte[] truncated = new byte[png.length / 2];
+        System.arraycopy(png, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalArgumentException.class, () -> imageService.sanitize(truncated));
+    }
+
+
+    @Test
+    void acceptsEverySupportedFormat() throws IOException {
+        for (String format : List.of("jpeg", "png", "gif", "bmp")) {
+            ImageService.ProcessedImage image = imageService.sanitize(write(rgb(20, 10), format));
+            assertEquals(20, image.getImage().getWidth(), format);
+            assertEquals(10, image.getImage().getHeight(), format);
+        }
+    }
+
+
+    @Test
+    void rejectsDimensionsAboveTheLimitFromTheHeader() throws IOException {
+        IllegalArgumentException wide = assertThrows(IllegalArgumentException.class,
+                () -> imageService.sanitize(write(rgb(8001, 1), "png")));
+        assertEquals("Image dimensions exceed 8000px", wide.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> imageService.sanitize(write(rgb(1, 8001), "png")));
+
+        assertEquals(2667, imageService.sanitize(write(rgb(8000, 2), "png")).getImage().getWidth());
+    }
+
+
+    @Test
+    void subsamplesLargeImagesWhileDecoding() throws IOException {
+        assertEquals(3000, imageService.sanitize(write(rgb(3000, 2), "png")).getImage().getWidth());
+
+        BufferedImage subsampled = imageService.sanitize(write(rgb(3001, 4), "png")).getImage();
+        assertEquals(1501, subsampled.getWidth());
+        assertEquals(2, subsampled.getHeight());
+
+        // every third pixel of a 7000 pixel row
+        assertEquals(2334, imageService.sanitize(write(rgb(7000, 3), "png")).getImage().getWidth());
+    }
+
+
+    @Test
+    void keepsPngOnlyForImagesWithAlpha() throws IOException {
+        ImageService.ProcessedImage transparent = imageService.sanitize(write(argb(10, 10), "png"));
+        assertEquals("png", transparent.getFormat());
+        assertEquals("image/png", transparent.getContentType());
+        assertTrue(decode(transparent.getData()).getColorModel().hasAlpha());
+
+        ImageService.ProcessedImage opaque = imageService.sanitize(write(rgb(10, 10), "png"));
+        assertEquals("jpeg", opaque.getFormat());
+        assertEquals("image/jpeg", opaque.getContentType());
+        assertEquals(10, decode(opaque.getData()).getWidth());
+
+        assertEquals("jpeg", imageService.sanitize(write(rgb(10, 10), "bmp")).getFormat());
+    }
+
+
+    @Test
+    void cropsAvatarsToACentredSquare() throws IOException {
+        BufferedImage source = rgb(300, 100);
+        // a stripe in the middle third, which is what the crop keeps
+        for (int x = 100; x < 200; x++) {
+            for (int y = 0; y < 100; y++) {
+                source.setRGB(x, y, 0xFF0000);
+            }
+        }
+        ImageService.RenderedImages avatar = imageService.renderAvatar(imageService.sanitize(write(source, "png")));
+
+        assertEquals(300, avatar.getOriginal().getImage().getWidth());
+        BufferedImage thumbnail = decode(avatar.getVariants().get(ImageService.THUMBNAIL_WIDTH).getData());
+        assertEquals(48, thumbnail.getWidth());
+        assertEquals(48, thumbnail.getHeight());
+        int corner = thumbnail.getRGB(0, 0);
+        assertTrue((corner >> 16 & 0xFF) > 200 && (corner & 0xFF) < 60, Integer.toHexString(corner));
+    }
+
+
+    @Test
+    void neverUpscales() throws IOException {
+        ImageService.RenderedImages avatar = imageService.renderAvatar(imageService.sanitize(write(rgb(300, 100), "png")));
+        assertEquals(List.of(ImageService.THUMBNAIL_WIDTH, ImageService.PROFILE_AVATAR_WIDTH, ImageService.LARGE_AVATAR_WIDTH),
+                List.copyOf(avatar.getVariants().keySet()));
+        for (int width : new int[]{ImageService.PROFILE_AVATAR_WIDTH, ImageService.LARGE_AVATAR_WIDTH}) {
+            BufferedImage variant = decode(avatar.getVariants().get(width).getData());
+            assertEquals(100, variant.getWidth());
+            assertEquals(100, variant.getHeight());
+        }
+
+        ImageService.RenderedImages banner = imageService.renderBanner(imageService.sanitize(write(argb(800, 200), "png")));
+        ImageService.ProcessedImage variant = banner.getVariants().get(ImageService.BANNER_WIDTH);
+        assertEquals("png", variant.getFormat());
+        assertEquals(800, decode(variant.getData()).getWidth());
+        assertEquals(200, decode(variant.getData()).getHeight());
+    }
+
+
+    @Test
+    void scalesBannersDownKeepingTheAspectRatio() throws IOException {
+        ImageService.RenderedImages banner = imageService.renderBanner(imageService.sanitize(write(rgb(3000, 600), "jpeg")));
+
+        BufferedImage variant = decode(banner.getVariants().get(ImageService.BANNER_WIDTH).getData());
+        assertEquals(1500, variant.getWidth());
+        assertEquals(300, variant.getHeight());
+    }
+
+
+    @Test
+    void checksTheUploadBeforeDecodingIt() throws IOException {
+        MockMultipartFile tooLarge = new MockMultipartFile("avatar", new byte[(int) DataSize.ofMegabytes(1).toBytes() + 1]);
+        assertThrows(IllegalArgumentException.class, () -> imageService.renderUpload(tooLarge, UserImage.Kind.AVATAR));
+
+        ImageService busy = new ImageService(DataSize.ofMegabytes(1), 0);
+        MockMultipartFile png = new MockMultipartFile("avatar", write(rgb(10, 10), "png"));
+        assertThrows(RejectedExecutionException.class, () -> busy.renderUpload(png, UserImage.Kind.AVATAR));
+
+        assertEquals(3, imageService.renderUpload(png, UserImage.Kind.AVATAR).getVariants().size());
+    }
+
+
+    private static BufferedImage rgb(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+
+    private static BufferedImage argb(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0x80FF0000);
+        return image;
+    }
+
+
+    private static byte[] write(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out), format);
+        return out.toByteArray();
+    }
+
+
+    private static BufferedImage decode(byte[] data) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,138 @@
+package backend.service;
+
+import backend.PostgresTestDatabase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Up vote throughput on one hot post against PostgreSQL, with the counters written in the vote's statement
+ * and written behind. Every vote goes through BlogService, as from the controller. Skipped in the normal
+ * build, run with
+ * <pre>
+ * mvn test -Dtest=VoteCounterBenchmark -Dbenchmark=true [-Dbenchmark.threads=16] [-Dbenchmark.votes=20000]
+ * </pre>
+ */
+@SpringBootTest(properties = {
+        "meet.votes.write-behind=true",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VoteCounterBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+
+    private static final int VOTES = Integer.getInteger("benchmark.votes", 20000);
+
+    private static final int VOTERS = 1000;
+
+    private static final long BLOG_ID = 1L;
+
+    @Autowired
+    private BlogService blogService;
+
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "vote_counter_benchmark");
+    }
+
+
+    @Test
+    void hotPost() throws Exception {
+        createPost();
+        // warm up the pool, the plans and the JIT for both paths
+        run(false, VOTES / 10);
+        run(true, VOTES / 10);
+
+        report("synchronous", run(false, VOTES));
+        report("write-behind", run(true, VOTES));
+
+        voteCounterBuffer.flush();
+        Integer active = jdbcTemplate.queryForObject("SELECT count(*) FROM votes WHERE blog_id = ? AND status", Integer.class, BLOG_ID);
+        Integer counted = jdbcTemplate.queryForObject("SELECT up_votes FROM blogs WHERE id = ?", Integer.class, BLOG_ID);
+        assertEquals(active, counted);
+    }
+
+
+    private void createPost() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (long id = 1; id <= VOTERS; id++) {
+                jdbcTemplate.update("INSERT INTO users (id, username, email, created_time) VALUES (?, ?, ?, LOCALTIMESTAMP)",
+                        id, "voter" + id, "voter" + id + "@example.com");
+                jdbcTemplate.update("INSERT INTO user_stats (user_id) VALUES (?)", id);
+            }
+            jdbcTemplate.update("INSERT INTO blogs (id, title, user_id, created_time) " +
+                    "VALUES (?, 'Hot', 1, LOCALTIMESTAMP)", BLOG_ID);
+        });
+    }
+
+
+    private record Run(long wallNanos, long[] latencyMicros) {
+    }
+
+
+    private Run run(boolean writeBehind, int votes) throws Exception {
+        ReflectionTestUtils.setField(voteCounterBuffer, "enabled", writeBehind);
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                long[] latencies = new long[votes / THREADS];
+                for (int i = 0; i < latencies.length; i++) {
+                    int voter = (thread + i * THREADS) % VOTERS + 1;
+                    long voted = System.nanoTime();
+                    blogService.upVoteOrDeleteVoteBlog((int) BLOG_ID, voter);
+                    latencies[i] = (System.nanoTime() - voted) / 1000;
+                }
+                return latencies;
+            }));
+        }
+        List<long[]> latencies = new ArrayList<>();
+        for (Future<long[]> result : results) {
+            latencies.add(result.get(10, TimeUnit.MINUTES));
+        }
+        long wallNanos = System.nanoTime() - started;
+        pool.shutdown();
+        return new Run(wallNanos, latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray());
+    }
+
+
+    private void report(String mode, Run run) {
+        long[] latencies = run.latencyMicros();
+        System.out.printf("%-13s %d threads  %6.0f votes/s  p50 %6d us  p99 %6d us%n", mode, THREADS,
+                latencies.length * 1e9 / run.wallNanos(), latencies[latencies.length / 2],
+                latencies[latencies.length * 99 / 100]);
+    }
+}
@@ -0,0 +1,178 @@
+package backend.service;
+
+import backend.DatabaseTestSupport;
+import backend.job.CounterReconciliationJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@TestPropertySource(properties = "meet.votes.write-behind=true")
+class VoteCounterBufferTests extends DatabaseTestSupport {
+
+    private static final long AUTHOR_ID = 9001L;
+
+    private static final long VOTER_ID = 9002L;
+
+    private static final long BLOG_ID = 9001L;
+
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private CounterReconciliationJob counterReconciliationJob;
+
+
+    @BeforeEach
+    void createPost() {
+        insertUser(AUTHOR_ID, "author");
+        insertUser(VOTER_ID, "voter");
+        update("INSERT INTO user_stats (user_id) VALUES (?)", AUTHOR_ID);
+        update("INSERT INTO user_stats (user_id) VALUES (?)", VOTER_ID);
+        insertPost(BLOG_ID, "Title", AUTHOR_ID);
+    }
+
+
+    // nothing may be left pending for a post that is about to be deleted
+    @AfterEach
+    void flush() {
+        voteCounterBuffer.flush();
+    }
+
+
+    @Test
+    void queuesDeltasOnlyOnceTheTransactionCommits() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            voteCounterBuffer.add(BLOG_ID, 1);
+            status.setRollbackOnly();
+        });
+        voteCounterBuffer.flush();
+        assertEquals(0, upVotes());
+
+        transaction.executeWithoutResult(status -> {
+            voteCounterBuffer.add(BLOG_ID, 1);
+            // still uncommitted, nothing to write yet
+            voteCounterBuffer.flush();
+            assertEquals(0, upVotes());
+        });
+        voteCounterBuffer.flush();
+        assertEquals(1, upVotes());
+        assertEquals(1, upVotesReceived());
+    }
+
+
+    @Test
+    void keepsDeltasWhenTheWriteFails() {
+        voteCounterBuffer.add(BLOG_ID, 1);
+        voteCounterBuffer.add(BLOG_ID, 1);
+
+        JdbcTemplate failing = Mockito.spy(jdbcTemplate);
+        Mockito.doThrow(new DataAccessResourceFailureException("database down"))
+                .when(failing).batchUpdate(anyString(), anyList());
+        ReflectionTestUtils.setField(voteCounterBuffer, "jdbcTemplate", failing);
+        try {
+            voteCounterBuffer.flush();
+        } finally {
+            ReflectionTestUtils.setField(voteCounterBuffer, "jdbcTemplate", jdbcTemplate);
+        }
+        assertEquals(0, upVotes());
+
+        voteCounterBuffer.add(BLOG_ID, -1);
+        voteCounterBuffer.flush();
+        assertEquals(1, upVotes());
+        assertEquals(1, upVotesReceived());
+
+        // written once, nothing left over for the next flush
+        voteCounterBuffer.flush();
+        assertEquals(1, upVotes());
+    }
+
+
+    @Test
+    void keepsAddsThatRaceWithTheRemovalOfEmptyCounters() throws Exception {
+        int threads = 8;
+        int addsPerThread = 2000;
+        ExecutorService voters = Executors.newFixedThreadPool(threads);
+        AtomicBoolean voting = new AtomicBoolean(true);
+        // flushes back to back, so the post's counter is dropped as empty over and over while adds land
+        Thread flusher = new Thread(() -> {
+            while (voting.get()) {
+                voteCounterBuffer.flush();
+            }
+        });
+        flusher.start();
+
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            done.add(voters.submit(() -> {
+                for (int j = 0; j < addsPerThread; j++) {
+                    voteCounterBuffer.add(BLOG_ID, 1);
+                    if (j % 100 == 0) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        voting.set(false);
+        flusher.join();
+        voters.shutdown();
+
+        voteCounterBuffer.flush();
+        assertEquals(threads * addsPerThread, upVotes());
+        assertEquals(threads * addsPerThread, upVotesReceived());
+    }
+
+
+    @Test
+    void reconciliationLeavesRecentlyVotedPostsToTheFlush() {
+        // committed, but its delta is still waiting in a buffer
+        update("INSERT INTO votes (id, user_id, blog_id, up_vote, status, created_time, updated_time) " +
+                "VALUES (9001, ?, ?, true, true, LOCALTIMESTAMP, LOCALTIMESTAMP)", VOTER_ID, BLOG_ID);
+        voteCounterBuffer.add(BLOG_ID, 1);
+
+        counterReconciliationJob.reconcile();
+        assertEquals(0, upVotes());
+        voteCounterBuffer.flush();
+        assertEquals(1, upVotes());
+
+        // settled, so drift is repaired again
+        update("UPDATE votes SET updated_time = ? WHERE id = 9001",
+                new Timestamp(System.currentTimeMillis() - 3600000));
+        update("UPDATE blogs SET up_votes = 5 WHERE id = ?", BLOG_ID);
+        counterReconciliationJob.reconcile();
+        assertEquals(1, upVotes());
+    }
+
+
+    private int upVotes() {
+        return jdbcTemplate.queryForObject("SELECT up_votes FROM blogs WHERE id = ?", Integer.class, BLOG_ID);
+    }
+
+
+    private int upVotesReceived() {
+        return jdbcTemplate.queryForObject("SELECT up_votes_received FROM user_stats WHERE user_id = ?", Integer.class, AUTHOR_ID);
+    }
+}
@@ -0,0 +1,43 @@
+package backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// expected values are what pg_trgm returns for the same input
+class TrigramsTests {
+
+    @Test
+    void padsEveryWordLikePgTrgm() {
+        assertEquals(Set.of("  c", " ca", "cat", "at "), Trigrams.of("cat"));
+        assertEquals(Trigrams.of("hello world"), Trigrams.of("Hello, WORLD!"));
+        assertTrue(Trigrams.of(null).isEmpty());
+        assertTrue(Trigrams.of(" -- ").isEmpty());
+    }
+
+
+    @Test
+    void similarityIsSharedOverDistinctTrigrams() {
+        assertEquals(1.0, Trigrams.similarity("word", "Word"));
+        // 2 shared of 4 + 5 - 2
+        assertEquals(2.0 / 7, Trigrams.similarity("cat", "cart"), 1e-9);
+        // 7 shared of 10 + 9 - 7
+        assertEquals(7.0 / 12, Trigrams.similarity("johnsmith", "jonsmith"), 1e-9);
+        assertEquals(0.0, Trigrams.similarity("alice", "bob"));
+        assertEquals(0.0, Trigrams.similarity("", "bob"));
+    }
+
+
+    @Test
+    void wordSimilarityIsTheShareOfTheQueryFoundInTheText() {
+        assertEquals(1.0, Trigrams.wordSimilarity("autovacuum", "Tuning PostgreSQL autovacuum"));
+        // a typo only costs the trigrams it touches, "cuu" and "uum" are missing
+        assertEquals(9.0 / 11, Trigrams.wordSimilarity("autovacuum", "Autovacum pitfalls"), 1e-9);
+        assertEquals(5.0 / 11, Trigrams.wordSimilarity("autovacuum", "Vacuum tuning notes"), 1e-9);
+        // not symmetric, the rest of the text does not count against the query
+        assertTrue(Trigrams.wordSimilarity("vacuum", "autovacuum") > Trigrams.wordSimilarity("autovacuum", "vacuum"));
+        assertEquals(0.0, Trigrams.wordSimilarity("", "anything"));
+    }
+}
@@ -31,10 +31,16 @@ export const getAllPosts = (
   categoryTitle = null,
   tagTitle = null,
   sortBy = "",
-  sortDir = ""
+  sortDir = "",
+  after = null
 ) => {
   let url = `/posts?page=${page}&size=${size}&sortBy=${sortBy}&sortDir=${sortDir}`;
 
+  // keyset mode: pass "" for the first slice, then the returned nextCursor
+  if (after !== null) {
+    url += `&after=${encodeURIComponent(after)}`;
+  }
+
   if (categoryTitle) {
     url += `&category=${categoryTitle}`;
   }
@@ -50,12 +56,28 @@ export const getPostsBySearchTerm = (searchTerm) => {
   return apiClient.get(`/posts/search?searchTerm=${searchTerm}`);
 };
 
+// autocompletion over tags, categories, usernames and popular post titles
+export const getSuggestions = (prefix, limit = 8) => {
+  return apiClient.get(
+    `/suggest?prefix=${encodeURIComponent(prefix)}&limit=${limit}`
+  );
+};
+
 export const getPost = (postId) => {
   return apiClient.get(`/posts/${postId}`);
 };
 
-export const getComments = (postId) => {
-  return apiClient.get(`/posts/${postId}/comments`);
+// top level comments with the first replies of each, more replies come from getReplies
+export const getComments = (postId, page = 0, size = 10) => {
+  return apiClient.get(`/posts/${postId}/comments`, {
+    params: { page, size },
+  });
+};
+
+export const getReplies = (commentId, after = null, size = 10) => {
+  return apiClient.get(`/comments/${commentId}/replies`, {
+    params: { after, size },
+  });
 };
 
 export const createTopic = (topicData) => {
@@ -1,6 +1,7 @@
 import apiClient from "./base";
 import axios from "axios";
 
+// deprecated: loads the whole history of the user, use the header and the paginated lists below
 export const getProfile = (username) => {
   return apiClient.get(`/profile`, {
     params: {
@@ -9,6 +10,46 @@ export const getProfile = (username) => {
   });
 };
 
+export const getProfileHeader = (username) => {
+  return apiClient.get(`/profile/header`, {
+    params: {
+      username: username,
+    },
+  });
+};
+
+export const getUserPosts = (userId, page = 0, size = 10) => {
+  return apiClient.get(`/users/${userId}/posts`, { params: { page, size } });
+};
+
+export const getUserVotes = (userId, blogId, page = 0, size = 20) => {
+  return apiClient.get(`/users/${userId}/votes`, {
+    params: { blogId, page, size },
+  });
+};
+
+export const getFollowers = (userId, page = 0, size = 20) => {
+  return apiClient.get(`/users/${userId}/followers`, { params: { page, size } });
+};
+
+export const getFollowing = (userId, page = 0, size = 20) => {
+  return apiClient.get(`/users/${userId}/following`, { params: { page, size } });
+};
+
+export const isFollowingUser = (userId, targetId) => {
+  return apiClient.get(`/users/${userId}/following/${targetId}`);
+};
+
+export const getFollowedTags = (userId, page = 0, size = 50) => {
+  return apiClient.get(`/users/${userId}/tags`, { params: { page, size } });
+};
+
+export const getFollowedCategories = (userId, page = 0, size = 50) => {
+  return apiClient.get(`/users/${userId}/categories`, {
+    params: { page, size },
+  });
+};
+
 export const updateProfile = async (profileData) => {
   const token =
     localStorage.getItem("token") || sessionStorage.getItem("token");
@@ -1,7 +1,11 @@
 import React, { useState, useEffect } from "react";
 import { Box, Typography, Button, Divider } from "@mui/material";
 import { getCategories } from "../api/blog";
-import { getProfile, followCategory, unfollowCategory } from "../api/user";
+import {
+  getFollowedCategories,
+  followCategory,
+  unfollowCategory,
+} from "../api/user";
 import { useNavigate } from "react-router-dom";
 
 function Categories() {
@@ -12,28 +16,29 @@ function Categories() {
   const isLoggedIn = Boolean(
     localStorage.getItem("token") || sessionStorage.getItem("token")
   );
-  const username =
-    localStorage.getItem("username") || sessionStorage.getItem("username");
+  const userId = localStorage.getItem("id") || sessionStorage.getItem("id");
 
   const navigate = useNavigate();
 
   useEffect(() => {
     const fetchData = async () => {
       try {
-        // Fetch all categories and user profile in parallel
-        const [categoriesResponse, profileResponse] = await Promise.all([
+        // Fetch all categories and the ones the user follows in parallel
+        const [categoriesResponse, followedResponse] = await Promise.all([
           getCategories(),
-          isLoggedIn ? getProfile(username) : Promise.resolve({ data: null }),
+          isLoggedIn && userId
+            ? getFollowedCategories(userId, 0, 100)
+            : Promise.resolve({ data: null }),
         ]);
 
         if (categoriesResponse.status === 200) {
           setCategories(categoriesResponse.data);
         }
 
-        // Set followed categories from user profile
-        if (profileResponse?.data?.categories) {
+        // Set followed categories
+        if (followedResponse?.data?.content) {
           const followedIds = new Set(
-            profileResponse.data.categories.map((category) => category.id)
+            followedResponse.data.content.map((category) => category.id)
           );
           setFollowedCategories(followedIds);
         }
@@ -44,7 +49,7 @@ function Categories() {
     };
 
     fetchData();
-  }, [isLoggedIn, username]);
+  }, [isLoggedIn, userId]);
 
   const handleFollow = async (categoryId) => {
     if (!isLoggedIn) {
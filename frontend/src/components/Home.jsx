@@ -13,7 +13,13 @@ import {
 import PostCard from "./PostCard";
 import { useNavigate } from "react-router-dom";
 import { getAllPosts } from "../api/blog";
-import { getProfile, unfollowUser, followUser } from "../api/user";
+import {
+  getProfileHeader,
+  getFollowedTags,
+  getFollowing,
+  unfollowUser,
+  followUser,
+} from "../api/user";
 import BookmarkIcon from "@mui/icons-material/Bookmark";
 import LocalOfferIcon from "@mui/icons-material/LocalOffer";
 import ArrowOutwardIcon from "@mui/icons-material/ArrowOutward";
@@ -26,7 +32,7 @@ const UserProfile = ({ username, avatar, likes, comments, posts, bio }) => {
 
   useEffect(() => {
     if (username) {
-      getProfile(username).then((response) => {
+      getProfileHeader(username).then((response) => {
         if (response.status === 200) {
           setUserProfile(response.data);
         }
@@ -307,11 +313,9 @@ const FollowingCard = ({ following }) => {
       } else {
         await followUser(currentUserId, targetId);
         // Optionally fetch updated user data to get the new following list
-        const response = await getProfile(
-          localStorage.getItem("username") || sessionStorage.getItem("username")
-        );
+        const response = await getFollowing(currentUserId, 0, 3);
         if (response.status === 200) {
-          setFollowingUsers(response.data.following?.slice(0, 3) || []);
+          setFollowingUsers(response.data.content);
         }
       }
     } catch (error) {
@@ -454,10 +458,8 @@ const LoginPromptCard = () => {
 function Home() {
   const [posts, setPosts] = useState([]);
   const [pageInfo, setPageInfo] = useState({
-    number: 0,
     size: 5,
-    totalPages: 0,
-    totalElements: 0,
+    nextCursor: null,
     last: false,
   });
   const [currentUser, setCurrentUser] = useState(null);
@@ -467,7 +469,8 @@ function Home() {
   const sortOptions = {
     Newest: { sortBy: "createdTime", sortDir: "desc" },
     Oldest: { sortBy: "createdTime", sortDir: "asc" },
-    "Most Liked": { sortBy: "upVotes", sortDir: "asc" },
+    "Most Liked": { sortBy: "upVotes", sortDir: "desc" },
+    Hot: { sortBy: "hot", sortDir: "desc" },
   };
 
   useEffect(() => {
@@ -481,27 +484,38 @@ function Home() {
           null,
           null,
           apiSortBy,
-          sortDir
+          sortDir,
+          ""
         );
         if (postsResponse.status === 200) {
           const data = postsResponse.data;
           setPosts(data.content);
           setPageInfo({
-            number: data.number,
-            size: data.size,
-            totalPages: data.totalPages,
-            totalElements: data.totalElements,
-            last: data.last,
+            size: 5,
+            nextCursor: data.nextCursor,
+            last: !data.hasNext,
           });
+        } else {
+          setPosts([]);
+          setPageInfo({ size: 5, nextCursor: null, last: true });
         }
 
         const username =
           localStorage.getItem("username") ||
           sessionStorage.getItem("username");
         if (username) {
-          const profileResponse = await getProfile(username);
+          const profileResponse = await getProfileHeader(username);
           if (profileResponse.status === 200) {
-            setCurrentUser(profileResponse.data);
+            const profile = profileResponse.data;
+            const [tagsResponse, followingResponse] = await Promise.all([
+              getFollowedTags(profile.id, 0, 10),
+              getFollowing(profile.id, 0, 3),
+            ]);
+            setCurrentUser({
+              ...profile,
+              tags: tagsResponse.data.content,
+              following: followingResponse.data.content,
+            });
           }
         }
       } catch (error) {
@@ -524,23 +538,24 @@ function Home() {
       try {
         const { sortBy: apiSortBy, sortDir } = sortOptions[sortBy];
         const response = await getAllPosts(
-          pageInfo.number + 1,
+          0,
           pageInfo.size,
           null,
           null,
           apiSortBy,
-          sortDir
+          sortDir,
+          pageInfo.nextCursor
         );
         if (response.status === 200) {
           const data = response.data;
           setPosts((prevPosts) => [...prevPosts, ...data.content]);
           setPageInfo({
-            number: data.number,
-            size: data.size,
-            totalPages: data.totalPages,
-            totalElements: data.totalElements,
-            last: data.last,
+            size: pageInfo.size,
+            nextCursor: data.nextCursor,
+            last: !data.hasNext,
           });
+        } else {
+          setPageInfo({ ...pageInfo, last: true });
         }
       } catch (error) {
         console.error("Error loading more posts:", error);
@@ -602,7 +617,8 @@ function Home() {
                   <PostCard
                     id={post.id}
                     title={post.title}
-                    content={post.content}
+                    excerpt={post.excerpt}
+                    coverImage={post.coverImage}
                     author={post.author}
                     avatar={post.avatar}
                     categories={post.categories}
@@ -644,7 +660,7 @@ function Home() {
                   avatar={currentUser.avatar}
                   likes={currentUser.totalUpVotes}
                   comments={currentUser.totalComments}
-                  posts={currentUser.blogs?.length || 0}
+                  posts={currentUser.postCount}
                   bio={currentUser.bio}
                 />
                 {currentUser.tags?.length > 0 && (
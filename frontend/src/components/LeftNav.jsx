@@ -25,7 +25,7 @@ import ExpandLess from "@mui/icons-material/ExpandLess";
 import ExpandMore from "@mui/icons-material/ExpandMore";
 import { useNavigate } from "react-router-dom";
 import { createTopic, createCategory } from "../api/blog";
-import { getProfile } from "../api/user";
+import { getFollowedTags, getFollowedCategories } from "../api/user";
 
 function LeftNav() {
   const navigate = useNavigate();
@@ -51,8 +51,7 @@ function LeftNav() {
   });
   const [userInterests, setUserInterests] = useState(null);
 
-  const username =
-    localStorage.getItem("username") || sessionStorage.getItem("username");
+  const userId = localStorage.getItem("id") || sessionStorage.getItem("id");
 
   const isLoggedIn = Boolean(
     localStorage.getItem("token") || sessionStorage.getItem("token")
@@ -60,20 +59,24 @@ function LeftNav() {
 
   useEffect(() => {
     const fetchUserInterests = async () => {
-      if (!username) return;
+      if (!userId) return;
 
       try {
-        const response = await getProfile(username);
-        if (response.status === 200) {
-          setUserInterests(response.data);
-        }
+        const [tagsResponse, categoriesResponse] = await Promise.all([
+          getFollowedTags(userId),
+          getFollowedCategories(userId),
+        ]);
+        setUserInterests({
+          tags: tagsResponse.data.content,
+          categories: categoriesResponse.data.content,
+        });
       } catch (error) {
         console.error("Error fetching user interests:", error);
       }
     };
 
     fetchUserInterests();
-  }, [username]);
+  }, [userId]);
 
   const handleOpenTopicDialog = () => {
     setOpenTopicDialog(true);
@@ -16,12 +16,14 @@ import VisibilityIcon from "@mui/icons-material/Visibility";
 import ChatBubbleOutlineIcon from "@mui/icons-material/ChatBubbleOutline";
 import { useNavigate } from "react-router-dom";
 import { upVotePost } from "../api/blog";
-import { getProfile } from "../api/user";
+import { getUserVotes } from "../api/user";
 
 const PostCard = ({
   id,
   title,
   content,
+  excerpt,
+  coverImage,
   author,
   avatar,
   categories,
@@ -32,40 +34,42 @@ const PostCard = ({
   const navigate = useNavigate();
   const [upVotes, setUpVotes] = useState(initialUpVotes);
   const [error, setError] = useState({ open: false, message: "" });
-  const [userProfile, setUserProfile] = useState(null);
   const [isUpvoted, setIsUpvoted] = useState(false);
 
   const userId = localStorage.getItem("id") || sessionStorage.getItem("id");
   const username =
     localStorage.getItem("username") || sessionStorage.getItem("username");
 
-  // Fetch user profile and check votes
+  // Check whether the user has voted for this post
   useEffect(() => {
-    if (username) {
-      getProfile(username)
+    if (username && userId) {
+      getUserVotes(userId, id, 0, 1)
         .then((response) => {
           if (response.status === 200) {
-            setUserProfile(response.data);
-            // Check if user has voted for this post
-            const hasVoted = response.data.votes?.some(
-              (vote) => vote.blogId === id && vote.upVote === true
+            const hasVoted = response.data.content?.some(
+              (vote) => vote.upVote === true
             );
             setIsUpvoted(hasVoted);
           }
         })
         .catch((error) => {
-          console.error("Error fetching profile:", error);
+          console.error("Error fetching votes:", error);
         });
     }
-  }, [username, id]);
+  }, [username, userId, id]);
 
-  const tempDiv = document.createElement("div");
-  tempDiv.innerHTML = content;
+  // list endpoints send a precomputed excerpt, full posts still carry content
+  let firstImage = coverImage;
+  let textPreview = excerpt;
+  if (excerpt === undefined || excerpt === null) {
+    const tempDiv = document.createElement("div");
+    tempDiv.innerHTML = content || "";
 
-  const firstImage = tempDiv.querySelector("img")?.src;
-  const textContent = tempDiv.textContent || tempDiv.innerText;
-  const textPreview =
-    textContent.slice(0, 100) + (textContent.length > 20 ? "..." : "");
+    firstImage = tempDiv.querySelector("img")?.src;
+    const textContent = tempDiv.textContent || tempDiv.innerText;
+    textPreview =
+      textContent.slice(0, 100) + (textContent.length > 20 ? "..." : "");
+  }
 
   const handleCardClick = (e) => {
     if (e.target.closest(".upvote-button")) {
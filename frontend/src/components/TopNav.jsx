@@ -18,8 +18,15 @@ import SearchIcon from "@mui/icons-material/Search";
 import NotificationsNoneIcon from "@mui/icons-material/NotificationsNone";
 import Avatar from "@mui/material/Avatar";
 import ExitToAppIcon from "@mui/icons-material/ExitToApp";
-import { getProfile } from "../api/user";
-import { getPostsBySearchTerm } from "../api/blog";
+import { getProfileHeader } from "../api/user";
+import { getSuggestions } from "../api/blog";
+
+const SUGGESTION_LABELS = {
+  POST: "Post",
+  TAG: "Tag",
+  CATEGORY: "Category",
+  USER: "User",
+};
 
 function TopNav() {
   const navigate = useNavigate();
@@ -35,7 +42,7 @@ function TopNav() {
     const username =
       sessionStorage.getItem("username") || localStorage.getItem("username");
     if (username) {
-      getProfile(username)
+      getProfileHeader(username)
         .then((response) => {
           if (response.status === 200) {
             setUserProfile(response.data);
@@ -84,15 +91,15 @@ function TopNav() {
     if (value.trim()) {
       const newTimeout = setTimeout(async () => {
         try {
-          const response = await getPostsBySearchTerm(value);
+          const response = await getSuggestions(value);
           if (response.status === 200) {
-            setSearchResults(response.data.content || []);
+            setSearchResults(response.data || []);
           }
         } catch (error) {
           console.error("Search error:", error);
           setSearchResults([]);
         }
-      }, 300);
+      }, 150);
       setSearchTimeout(newTimeout);
     } else {
       setSearchResults([]);
@@ -104,8 +111,20 @@ function TopNav() {
     setSearchResults([]);
   };
 
-  const handleResultClick = (postId) => {
-    navigate(`/posts/${postId}`);
+  const handleResultClick = (suggestion) => {
+    switch (suggestion.type) {
+      case "TAG":
+        navigate(`/tag/${encodeURIComponent(suggestion.text)}`);
+        break;
+      case "CATEGORY":
+        navigate(`/category/${encodeURIComponent(suggestion.text)}`);
+        break;
+      case "USER":
+        navigate(`/profile/${encodeURIComponent(suggestion.text)}`);
+        break;
+      default:
+        navigate(`/posts/${suggestion.id}`);
+    }
     handleCloseSearch();
     setSearchTerm("");
   };
@@ -192,32 +211,19 @@ function TopNav() {
               <Box sx={{ maxHeight: 400, overflow: "auto" }}>
                 {searchResults?.map((result) => (
                   <Box
-                    key={result.id}
+                    key={`${result.type}-${result.id}`}
                     sx={{
                       p: 2,
                       cursor: "pointer",
                       "&:hover": { bgcolor: "rgba(0, 0, 0, 0.04)" },
                       borderBottom: "1px solid #eee",
                     }}
-                    onClick={() => handleResultClick(result.id)}
+                    onClick={() => handleResultClick(result)}
                   >
-                    <Box sx={{ display: "flex", alignItems: "center", mb: 1 }}>
-                      <Avatar
-                        src={
-                          result.avatar ||
-                          `https://ui-avatars.com/api/?name=${result.author}&background=4284f5&color=fff`
-                        }
-                        sx={{ width: 24, height: 24, mr: 1 }}
-                      >
-                        {result.author[0].toUpperCase()}
-                      </Avatar>
-                      <Typography variant="subtitle2">
-                        {result.author}
-                      </Typography>
-                    </Box>
-                    <Typography variant="body2" color="text.secondary">
-                      {result.title}
+                    <Typography variant="caption" color="text.secondary">
+                      {SUGGESTION_LABELS[result.type]}
                     </Typography>
+                    <Typography variant="body2">{result.text}</Typography>
                   </Box>
                 ))}
               </Box>
@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from "react";
 import { Box, Typography, Button, Divider } from "@mui/material";
 import { getTags } from "../api/blog";
-import { getProfile, followTopic, unfollowTopic } from "../api/user";
+import { getFollowedTags, followTopic, unfollowTopic } from "../api/user";
 import { useNavigate } from "react-router-dom";
 
 function Topics() {
@@ -12,28 +12,29 @@ function Topics() {
   const isLoggedIn = Boolean(
     localStorage.getItem("token") || sessionStorage.getItem("token")
   );
-  const username =
-    localStorage.getItem("username") || sessionStorage.getItem("username");
+  const userId = localStorage.getItem("id") || sessionStorage.getItem("id");
 
   const navigate = useNavigate();
 
   useEffect(() => {
     const fetchData = async () => {
       try {
-        // Fetch all topics and user profile in parallel
-        const [tagsResponse, profileResponse] = await Promise.all([
+        // Fetch all topics and the ones the user follows in parallel
+        const [tagsResponse, followedResponse] = await Promise.all([
           getTags(),
-          isLoggedIn ? getProfile(username) : Promise.resolve({ data: null }),
+          isLoggedIn && userId
+            ? getFollowedTags(userId, 0, 100)
+            : Promise.resolve({ data: null }),
         ]);
 
         if (tagsResponse.status === 200) {
           setTopics(tagsResponse.data);
         }
 
-        // Set followed topics from user profile
-        if (profileResponse?.data?.tags) {
+        // Set followed topics
+        if (followedResponse?.data?.content) {
           const followedIds = new Set(
-            profileResponse.data.tags.map((tag) => tag.id)
+            followedResponse.data.content.map((tag) => tag.id)
           );
           setFollowedTopics(followedIds);
         }
@@ -44,7 +45,7 @@ function Topics() {
     };
 
     fetchData();
-  }, [isLoggedIn, username]);
+  }, [isLoggedIn, userId]);
 
   const handleFollow = async (topicId) => {
     if (!isLoggedIn) {
@@ -124,7 +124,8 @@ function Collection() {
                 <PostCard
                   id={post.id}
                   title={post.title}
-                  content={post.content}
+                  excerpt={post.excerpt}
+                  coverImage={post.coverImage}
                   author={post.author}
                   avatar={post.avatar}
                   categories={post.categories}
@@ -1,7 +1,13 @@
 import React, { useState, useEffect, useRef } from "react";
 import { useParams, useNavigate } from "react-router-dom";
-import { getPost, upVotePost, postComment } from "../api/blog";
-import { getProfile } from "../api/user";
+import {
+  getPost,
+  upVotePost,
+  postComment,
+  getComments,
+  getReplies,
+} from "../api/blog";
+import { getUserVotes } from "../api/user";
 import {
   Typography,
   Box,
@@ -21,44 +27,40 @@ import "./PostPage.css";
 import { formatDate, formatRelativeTime } from "../util/utils";
 import "../styles/content.css";
 
-// Move organizeComments outside of any component
-const organizeComments = (comments) => {
-  if (!Array.isArray(comments)) return [];
-
-  const commentMap = new Map();
-  const topLevelComments = [];
-
-  // First pass: Create a map of all comments
-  comments.forEach((comment) => {
-    if (typeof comment === "object" && comment !== null) {
-      const commentObj = { ...comment, replies: [] };
-      commentMap.set(comment.id, commentObj);
-    }
-  });
-
-  // Second pass: Organize comments into a tree structure
-  comments.forEach((comment) => {
-    if (typeof comment === "object" && comment !== null) {
-      if (comment.parentCommentId === null) {
-        topLevelComments.push(commentMap.get(comment.id));
-      } else {
-        const parentComment = commentMap.get(comment.parentCommentId);
-        if (parentComment) {
-          parentComment.replies.push(commentMap.get(comment.id));
-        }
-      }
-    }
-  });
-
-  return topLevelComments;
-};
-
 // Comment component
 const Comment = ({ comment, postId, onCommentAdd, setError }) => {
   const [showReplyInput, setShowReplyInput] = useState(false);
   const [replyContent, setReplyContent] = useState("");
+  const [replies, setReplies] = useState(comment.replies || []);
+  const [replyCount, setReplyCount] = useState(comment.replyCount || 0);
+  const [loadingReplies, setLoadingReplies] = useState(false);
   const navigate = useNavigate();
 
+  // the thread is reloaded after every new comment
+  useEffect(() => {
+    setReplies(comment.replies || []);
+    setReplyCount(comment.replyCount || 0);
+  }, [comment]);
+
+  // replies are loaded in order of id, so the last one is the cursor
+  const loadMoreReplies = async () => {
+    setLoadingReplies(true);
+    try {
+      const after = replies.length > 0 ? replies[replies.length - 1].id : null;
+      const response = await getReplies(comment.id, after);
+      if (response.status === 200) {
+        setReplies([...replies, ...response.data.content]);
+        if (!response.data.hasNext) {
+          setReplyCount(replies.length + response.data.content.length);
+        }
+      }
+    } catch (error) {
+      setError({ open: true, message: "Failed to load replies" });
+    } finally {
+      setLoadingReplies(false);
+    }
+  };
+
   const handleReply = async () => {
     if (!replyContent.trim()) return;
 
@@ -67,19 +69,16 @@ const Comment = ({ comment, postId, onCommentAdd, setError }) => {
     try {
       const response = await postComment(postId, comment.id, replyContent);
       if (response.status === 201) {
-        const updatedPostResponse = await getPost(postId);
-        if (updatedPostResponse.status === 200) {
-          onCommentAdd(updatedPostResponse.data.comments);
-          setReplyContent("");
-          setShowReplyInput(false);
-
-          setTimeout(() => {
-            window.scrollTo({
-              top: scrollPosition,
-              behavior: "instant",
-            });
-          }, 0);
-        }
+        await onCommentAdd();
+        setReplyContent("");
+        setShowReplyInput(false);
+
+        setTimeout(() => {
+          window.scrollTo({
+            top: scrollPosition,
+            behavior: "instant",
+          });
+        }, 0);
       }
     } catch (error) {
       setError({
@@ -160,9 +159,9 @@ const Comment = ({ comment, postId, onCommentAdd, setError }) => {
       )}
 
       {/* Render replies */}
-      {comment.replies && comment.replies.length > 0 && (
+      {(replies.length > 0 || replyCount > 0) && (
         <Box sx={{ ml: 6, mt: 2, borderLeft: "2px solid #eee", pl: 2 }}>
-          {comment.replies.map((reply) => (
+          {replies.map((reply) => (
             <Comment
               key={reply.id}
               comment={reply}
@@ -171,6 +170,16 @@ const Comment = ({ comment, postId, onCommentAdd, setError }) => {
               setError={setError}
             />
           ))}
+          {replyCount > replies.length && (
+            <Button
+              size="small"
+              onClick={loadMoreReplies}
+              disabled={loadingReplies}
+            >
+              {replies.length > 0 ? "Load more replies" : "Show replies"} (
+              {replyCount - replies.length})
+            </Button>
+          )}
         </Box>
       )}
     </Box>
@@ -186,8 +195,40 @@ const CommentsSection = ({
   setError,
 }) => {
   const [newComment, setNewComment] = useState("");
+  const [comments, setComments] = useState([]);
+  const [commentsPage, setCommentsPage] = useState({ number: 0, last: true });
   const commentsRef = useRef(null);
 
+  const loadComments = async (page) => {
+    try {
+      const response = await getComments(post.id, page);
+      if (response.status === 200) {
+        setComments(
+          page === 0
+            ? response.data.content
+            : [...comments, ...response.data.content]
+        );
+        setCommentsPage({
+          number: response.data.number,
+          last: response.data.last,
+        });
+      }
+    } catch (error) {
+      setError({ open: true, message: "Failed to load comments" });
+    }
+  };
+
+  useEffect(() => {
+    loadComments(0);
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [post.id]);
+
+  // a new comment may land anywhere in the thread, so start again from the first page
+  const handleCommentAdd = async () => {
+    onCommentAdd();
+    await loadComments(0);
+  };
+
   const handleSubmitComment = async () => {
     if (!userId) {
       setError({
@@ -210,18 +251,15 @@ const CommentsSection = ({
     try {
       const response = await postComment(post.id, null, newComment);
       if (response.status === 201) {
-        const updatedPostResponse = await getPost(post.id);
-        if (updatedPostResponse.status === 200) {
-          onCommentAdd(updatedPostResponse.data.comments);
-          setNewComment("");
-
-          setTimeout(() => {
-            window.scrollTo({
-              top: scrollPosition,
-              behavior: "instant",
-            });
-          }, 0);
-        }
+        await handleCommentAdd();
+        setNewComment("");
+
+        setTimeout(() => {
+          window.scrollTo({
+            top: scrollPosition,
+            behavior: "instant",
+          });
+        }, 0);
       }
     } catch (error) {
       setError({
@@ -231,8 +269,6 @@ const CommentsSection = ({
     }
   };
 
-  const organizedComments = organizeComments(post.comments);
-
   return (
     <Box className="comments-section" ref={commentsRef}>
       <Box sx={{ mb: 3 }}>
@@ -259,16 +295,26 @@ const CommentsSection = ({
         </Box>
       </Box>
 
-      {organizedComments.length > 0 ? (
-        organizedComments.map((comment) => (
-          <Comment
-            key={comment.id}
-            comment={comment}
-            postId={post.id}
-            onCommentAdd={onCommentAdd}
-            setError={setError}
-          />
-        ))
+      {comments.length > 0 ? (
+        <>
+          {comments.map((comment) => (
+            <Comment
+              key={comment.id}
+              comment={comment}
+              postId={post.id}
+              onCommentAdd={handleCommentAdd}
+              setError={setError}
+            />
+          ))}
+          {!commentsPage.last && (
+            <Button
+              fullWidth
+              onClick={() => loadComments(commentsPage.number + 1)}
+            >
+              Load more comments
+            </Button>
+          )}
+        </>
       ) : (
         <Typography variant="body2" color="text.secondary">
           No comments yet
@@ -297,9 +343,11 @@ function PostPage() {
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const [postResponse, profileResponse] = await Promise.all([
+        const [postResponse, votesResponse] = await Promise.all([
           getPost(postId),
-          username ? getProfile(username) : Promise.resolve({ data: null }),
+          username && userId
+            ? getUserVotes(userId, postId, 0, 1)
+            : Promise.resolve({ data: null }),
         ]);
 
         if (postResponse.status === 200) {
@@ -307,9 +355,9 @@ function PostPage() {
           setUpVotes(postResponse.data.upVotes);
 
           // Check if user has voted
-          if (profileResponse.data) {
-            const hasVoted = profileResponse.data.votes?.some(
-              (vote) => vote.blogId === parseInt(postId) && vote.upVote === true
+          if (votesResponse.data) {
+            const hasVoted = votesResponse.data.content?.some(
+              (vote) => vote.upVote === true
             );
             setIsUpvoted(hasVoted);
           }
@@ -322,7 +370,7 @@ function PostPage() {
     };
 
     fetchData();
-  }, [postId, username]);
+  }, [postId, username, userId]);
 
   const handleUpvote = async () => {
     if (!userId) {
@@ -351,11 +399,11 @@ function PostPage() {
     setError({ open: false, message: "" });
   };
 
-  const handleCommentAdd = (newComments) => {
-    setPost({
-      ...post,
-      comments: newComments,
-    });
+  const handleCommentAdd = () => {
+    setPost((current) => ({
+      ...current,
+      commentCount: current.commentCount + 1,
+    }));
   };
 
   if (loading) {
@@ -469,7 +517,7 @@ function PostPage() {
           <Box display="flex" alignItems="center">
             <ChatBubbleOutlineIcon />
             <Typography variant="body2" mx={1}>
-              {post.comments.length}
+              {post.commentCount}
             </Typography>
           </Box>
         </Box>
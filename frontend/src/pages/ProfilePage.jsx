@@ -24,7 +24,9 @@ import MoreHorizIcon from "@mui/icons-material/MoreHoriz";
 import CalendarTodayIcon from "@mui/icons-material/CalendarToday";
 import EditIcon from "@mui/icons-material/Edit";
 import {
-  getProfile,
+  getProfileHeader,
+  getUserPosts,
+  isFollowingUser,
   updateAvatar,
   updateBanner,
   followUser,
@@ -43,6 +45,8 @@ const ProfilePage = () => {
   const { username: profileUsername } = useParams();
   const [gradient, setGradient] = useState("");
   const [userProfile, setUserProfile] = useState(null);
+  const [posts, setPosts] = useState([]);
+  const [postsPage, setPostsPage] = useState({ number: 0, last: true });
   const [loading, setLoading] = useState(true);
   const fileInputRef = useRef(null);
   const [avatarUrl, setAvatarUrl] = useState(null);
@@ -69,38 +73,31 @@ const ProfilePage = () => {
 
     const fetchProfile = async () => {
       try {
-        if (currentUsername && !isCurrentUser) {
-          const [profileResponse, currentUserResponse] = await Promise.all([
-            getProfile(targetUsername),
-            getProfile(currentUsername),
+        const profileResponse = await getProfileHeader(targetUsername);
+
+        if (profileResponse.status === 200) {
+          const profile = profileResponse.data;
+          setUserProfile(profile);
+          setAvatarUrl(
+            profile.avatar ||
+              `https://ui-avatars.com/api/?name=${profile.name}&background=4284f5&color=fff`
+          );
+          setBannerUrl(profile.banner);
+
+          const currentUserId =
+            localStorage.getItem("id") || sessionStorage.getItem("id");
+          const [postsResponse, followingResponse] = await Promise.all([
+            getUserPosts(profile.id),
+            currentUserId && !isCurrentUser
+              ? isFollowingUser(currentUserId, profile.id)
+              : Promise.resolve({ data: false }),
           ]);
-
-          if (profileResponse.status === 200) {
-            setUserProfile(profileResponse.data);
-            setAvatarUrl(
-              profileResponse.data.avatar ||
-                `https://ui-avatars.com/api/?name=${profileResponse.data.name}&background=4284f5&color=fff`
-            );
-            setBannerUrl(profileResponse.data.banner);
-
-            if (currentUserResponse?.data) {
-              const following = currentUserResponse.data.following || [];
-              setIsFollowing(
-                following.some((user) => user.id === profileResponse.data.id)
-              );
-            }
-          }
-        } else {
-          const profileResponse = await getProfile(targetUsername);
-
-          if (profileResponse.status === 200) {
-            setUserProfile(profileResponse.data);
-            setAvatarUrl(
-              profileResponse.data.avatar ||
-                `https://ui-avatars.com/api/?name=${profileResponse.data.name}&background=4284f5&color=fff`
-            );
-            setBannerUrl(profileResponse.data.banner);
-          }
+          setPosts(postsResponse.data.content);
+          setPostsPage({
+            number: postsResponse.data.number,
+            last: postsResponse.data.last,
+          });
+          setIsFollowing(followingResponse.data === true);
         }
       } catch (error) {
         console.error("Error fetching profile:", error);
@@ -114,6 +111,21 @@ const ProfilePage = () => {
     }
   }, [targetUsername, currentUsername, isCurrentUser]);
 
+  const loadMorePosts = async () => {
+    try {
+      const response = await getUserPosts(userProfile.id, postsPage.number + 1);
+      if (response.status === 200) {
+        setPosts([...posts, ...response.data.content]);
+        setPostsPage({
+          number: response.data.number,
+          last: response.data.last,
+        });
+      }
+    } catch (error) {
+      console.error("Error fetching posts:", error);
+    }
+  };
+
   const handleAvatarClick = () => {
     if (isCurrentUser) {
       fileInputRef.current.click();
@@ -164,9 +176,17 @@ const ProfilePage = () => {
       if (isFollowing) {
         await unfollowUser(currentUserId, userProfile.id);
         setIsFollowing(false);
+        setUserProfile({
+          ...userProfile,
+          followerCount: userProfile.followerCount - 1,
+        });
       } else {
         await followUser(currentUserId, userProfile.id);
         setIsFollowing(true);
+        setUserProfile({
+          ...userProfile,
+          followerCount: userProfile.followerCount + 1,
+        });
       }
     } catch (error) {
       console.error("Error toggling follow:", error);
@@ -396,7 +416,7 @@ const ProfilePage = () => {
             <Box sx={{ mt: 3, display: "flex", alignItems: "center", gap: 2 }}>
               <Box sx={{ display: "flex", alignItems: "center", gap: 0.5 }}>
                 <Typography variant="body2" fontWeight="bold">
-                  {userProfile.follower?.length || 0}
+                  {userProfile.followerCount}
                 </Typography>
                 <Typography variant="body2" color="text.secondary">
                   followers
@@ -405,7 +425,7 @@ const ProfilePage = () => {
               <Typography color="text.secondary">|</Typography>
               <Box sx={{ display: "flex", alignItems: "center", gap: 0.5 }}>
                 <Typography variant="body2" fontWeight="bold">
-                  {userProfile.following?.length || 0}
+                  {userProfile.followingCount}
                 </Typography>
                 <Typography variant="body2" color="text.secondary">
                   following
@@ -481,7 +501,7 @@ const ProfilePage = () => {
                 }}
               >
                 <Typography variant="h6" color="primary" fontWeight="bold">
-                  {userProfile.blogs?.length || 0}
+                  {userProfile.postCount}
                 </Typography>
                 <Typography variant="body2" color="text.secondary">
                   Posts
@@ -503,27 +523,38 @@ const ProfilePage = () => {
             <Box sx={{ display: "flex", justifyContent: "center", py: 4 }}>
               <CircularProgress />
             </Box>
-          ) : userProfile.blogs?.length > 0 ? (
+          ) : posts.length > 0 ? (
             // Posts content
-            userProfile.blogs.map((post, index) => (
-              <React.Fragment key={post.id}>
-                <PostCard
-                  id={post.id}
-                  title={post.title}
-                  content={post.content}
-                  author={userProfile.name}
-                  avatar={userProfile.avatar}
-                  categories={post.categories}
-                  tags={post.tags}
-                  upVotes={post.upVotes}
-                  comments={post.comments.length}
-                  createdTime={post.createdTime}
-                />
-                {index < userProfile.blogs.length - 1 && (
-                  <Divider sx={{ my: 4 }} />
-                )}
-              </React.Fragment>
-            ))
+            <>
+              {posts.map((post, index) => (
+                <React.Fragment key={post.id}>
+                  <PostCard
+                    id={post.id}
+                    title={post.title}
+                    excerpt={post.excerpt}
+                    coverImage={post.coverImage}
+                    author={userProfile.name}
+                    avatar={userProfile.avatar}
+                    categories={post.categories}
+                    tags={post.tags}
+                    upVotes={post.upVotes}
+                    comments={post.comments}
+                    createdTime={post.createdTime}
+                  />
+                  {index < posts.length - 1 && <Divider sx={{ my: 4 }} />}
+                </React.Fragment>
+              ))}
+              {!postsPage.last && (
+                <Button
+                  variant="contained"
+                  onClick={loadMorePosts}
+                  className="mt-4 mb-4 bg-purple-600 hover:bg-purple-700"
+                  fullWidth
+                >
+                  Load More
+                </Button>
+              )}
+            </>
           ) : (
             // No content message
             <Box